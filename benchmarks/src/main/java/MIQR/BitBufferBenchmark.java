@@ -0,0 +1,63 @@
+package MIQR;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// empaquetado de bits: valores sueltos de 11 bits, segmentos alineados y desalineados, y los datos completos del simbolo
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitBufferBenchmark extends EntradaBenchmark {
+
+	private BitBuffer bb;
+	private int[] valores;
+
+	@Setup
+	public void preparar() {
+		bb = new BitBuffer(new byte[QR.getNumDataCodewords(version, ecc)]);
+		valores = new int[texto.length() / 2];
+		for (int i = 0; i < valores.length; i++)
+			valores[i] = (i * 97) & 0x7FF;
+	}
+
+	@Benchmark
+	public BitBuffer apilarBits() {
+		bb.reset();
+		for (int v : valores)
+			bb.apilarBits(v, 11);
+		return bb;
+	}
+
+	@Benchmark
+	public BitBuffer segmentoAlineado() {
+		bb.reset();
+		bb.appendData(segmentos.get(0));
+		return bb;
+	}
+
+	@Benchmark
+	public BitBuffer segmentoDesalineado() {
+		bb.reset();
+		bb.apilarBits(0, 4);
+		bb.appendData(segmentos.get(0));
+		return bb;
+	}
+
+	@Benchmark
+	public BitBuffer datosCompletos() {
+		bb.reset();
+		QR.escribirDatos(segmentos, version, QR.getNumDataCodewords(version, ecc) * 8, bb);
+		return bb;
+	}
+
+}
@@ -0,0 +1,36 @@
+package MIQR;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// copia de la plantilla de la version y colocacion de las palabras de codigo en zigzag
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColocacionBenchmark extends EntradaBenchmark {
+
+	private MatrizBits matriz;
+
+	@Setup
+	public void preparar() {
+		matriz = new MatrizBits(tablas.plantilla.size);
+	}
+
+	@Benchmark
+	public MatrizBits colocarPalabras() {
+		matriz.copiarDe(tablas.plantilla);
+		tablas.colocarPalabras(codigo, matriz);
+		return matriz;
+	}
+
+}
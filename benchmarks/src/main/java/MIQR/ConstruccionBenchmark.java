@@ -0,0 +1,63 @@
+package MIQR;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// construccion del simbolo completo desde las palabras de datos, con mascara fija o automatica,
+// y de punta a punta desde los segmentos con QR y con CodificadorQR
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstruccionBenchmark extends EntradaBenchmark {
+
+	private OpcionesQR opciones;
+	private CodificadorQR codificador;
+
+	@Setup
+	public void preparar() {
+		opciones = new OpcionesQR(ecc, version, version, -1, false, QR.BusquedaMascara.SECUENCIAL);
+		codificador = new CodificadorQR();
+	}
+
+	@Benchmark
+	public QR mascaraFija() {
+		return new QR(version, ecc, datos, 0);
+	}
+
+	@Benchmark
+	public QR mascaraAutomatica() {
+		return new QR(version, ecc, datos, -1);
+	}
+
+	@Benchmark
+	public QR mascaraAutomaticaParalela() {
+		return new QR(version, ecc, datos, -1, QR.BusquedaMascara.PARALELA);
+	}
+
+	// mascara y correccion en paralelo, como en ServidorQR
+	@Benchmark
+	public QR todoParalelo() {
+		return new QR(version, ecc, datos, -1, QR.BusquedaMascara.PARALELA, true);
+	}
+
+	@Benchmark
+	public QR desdeSegmentos() {
+		return opciones.codificar(segmentos);
+	}
+
+	@Benchmark
+	public MatrizBits codificadorReutilizable() {
+		return codificador.codificar(segmentos, opciones);
+	}
+
+}
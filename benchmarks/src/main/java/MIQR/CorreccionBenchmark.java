@@ -0,0 +1,33 @@
+package MIQR;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// correccion de errores Reed-Solomon de todos los bloques e intercalado (agregarNivelCorreccion), secuencial y en paralelo
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorreccionBenchmark extends EntradaBenchmark {
+
+	@Benchmark
+	public byte[] agregarNivelCorreccion() {
+		QR.agregarNivelCorreccion(version, ecc, datos, codigo, residuo);
+		return codigo;
+	}
+
+	@Benchmark
+	public byte[] agregarNivelCorreccionParalela() {
+		QR.agregarNivelCorreccion(version, ecc, datos, codigo, null);
+		return codigo;
+	}
+
+}
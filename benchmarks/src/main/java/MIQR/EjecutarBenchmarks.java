@@ -0,0 +1,24 @@
+package MIQR;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+// Ejecuta los benchmarks con el perfil de asignaciones de JMH (equivale a -prof gc), que agrega a cada resultado
+// los bytes asignados por operacion y la tasa de asignacion: java -cp benchmarks.jar MIQR.EjecutarBenchmarks [filtro]
+public final class EjecutarBenchmarks {
+
+	private EjecutarBenchmarks() {}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opciones = new OptionsBuilder()
+			.include(args.length > 0 ? args[0] : "MIQR\\..*Benchmark")
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(opciones).run();
+	}
+
+}
@@ -0,0 +1,59 @@
+package MIQR;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+// Entrada comun de los benchmarks: un texto alfanumerico que ocupa el porcentaje pedido de la capacidad de datos
+// de la version y nivel dados, junto con lo que produce cada etapa, para que cada benchmark mida solo la suya.
+@State(Scope.Thread)
+public abstract class EntradaBenchmark {
+
+	private static final String ALFANUMERICO = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+	@Param({"1", "10", "25", "40"})
+	public int version;
+
+	@Param({"LOW", "MEDIUM", "QUARTILE", "HIGH"})
+	public QR.Ecc ecc;
+
+	// porcentaje de la capacidad de datos que ocupa el texto; el resto es relleno
+	@Param({"25", "100"})
+	public int ocupacion;
+
+	protected String texto;
+	protected List<SementoQR> segmentos;
+	protected byte[] datos;     // palabras de datos, sin correccion
+	protected byte[] codigo;    // palabras de datos y correccion intercaladas
+	protected byte[] residuo;
+	protected TablasVersion tablas;
+
+	@Setup
+	public void prepararEntrada() {
+		int capacidad = QR.getNumDataCodewords(version, ecc) * 8;
+		int bitsTexto = capacidad * ocupacion / 100 - 4 - SementoQR.Mode.ALPHANUMERIC.numCharCountBits(version);
+		int caracteres = Math.max(1, bitsTexto * 2 / 11);
+		Random r = new Random(version * 31 + ecc.ordinal());
+		char[] c = new char[caracteres];
+		for (int i = 0; i < c.length; i++)
+			c[i] = ALFANUMERICO.charAt(r.nextInt(ALFANUMERICO.length()));
+		texto = new String(c);
+		segmentos = Collections.singletonList(SementoQR.generarAlfanumerico(texto));
+
+		BitBuffer bb = new BitBuffer(new byte[capacidad / 8]);
+		QR.escribirDatos(segmentos, version, capacidad, bb);
+		datos = Arrays.copyOf(bb.arreglo(), capacidad / 8);
+
+		residuo = new byte[QR.largoCorreccion(version, ecc)];
+		codigo = new byte[QR.obtenerNumeroFilasModuloDatos(version) / 8];
+		QR.agregarNivelCorreccion(version, ecc, datos, codigo, residuo);
+		tablas = TablasVersion.obtener(version);
+	}
+
+}
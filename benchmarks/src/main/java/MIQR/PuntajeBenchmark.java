@@ -0,0 +1,43 @@
+package MIQR;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// puntaje de penalizacion N1 a N4 de un simbolo ya enmascarado, completo y con corte temprano
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuntajeBenchmark extends EntradaBenchmark {
+
+	private MatrizBits matriz;
+	private PuntajePenalidad puntaje;
+	private int limite;
+
+	@Setup
+	public void preparar() {
+		matriz = new QR(version, ecc, datos, -1).matriz();
+		puntaje = new PuntajePenalidad(matriz.size);
+		limite = puntaje.calcular(matriz) / 2;
+	}
+
+	@Benchmark
+	public int completo() {
+		return puntaje.calcular(matriz);
+	}
+
+	@Benchmark
+	public int conLimite() {
+		return puntaje.calcular(matriz, limite);
+	}
+
+}
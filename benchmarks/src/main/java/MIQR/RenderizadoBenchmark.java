@@ -0,0 +1,70 @@
+package MIQR;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// salida del simbolo: imagen en memoria, PNG y SVG, a 4 pixeles por modulo con borde de 4
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderizadoBenchmark extends EntradaBenchmark {
+
+	private static final int ESCALA = 4;
+	private static final int BORDE = 4;
+
+	private QR qr;
+	private EscritorPNG png;
+	private ByteArrayOutputStream salida;
+
+	@Setup
+	public void preparar() {
+		qr = new QR(version, ecc, datos, 0);
+		png = new EscritorPNG();
+		salida = new ByteArrayOutputStream(1 << 16);
+	}
+
+	@TearDown
+	public void cerrar() {
+		png.close();
+	}
+
+	@Benchmark
+	public BufferedImage imagenRGB() {
+		return qr.toImage(ESCALA, BORDE);
+	}
+
+	@Benchmark
+	public BufferedImage imagenBinaria() {
+		return qr.toImage(ESCALA, BORDE, BufferedImage.TYPE_BYTE_BINARY);
+	}
+
+	@Benchmark
+	public int png() throws IOException {
+		salida.reset();
+		png.escribir(qr, ESCALA, BORDE, salida);
+		return salida.size();
+	}
+
+	@Benchmark
+	public int svg() throws IOException {
+		StringWriter w = new StringWriter();
+		EscritorVectorial.escribirSVG(qr, BORDE, w);
+		return w.getBuffer().length();
+	}
+
+}
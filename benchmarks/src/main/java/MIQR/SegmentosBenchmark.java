@@ -0,0 +1,37 @@
+package MIQR;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// codificacion del texto en segmentos
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentosBenchmark extends EntradaBenchmark {
+
+	@Benchmark
+	public SementoQR alfanumerico() {
+		return SementoQR.generarAlfanumerico(texto);
+	}
+
+	@Benchmark
+	public List<SementoQR> automaticos() {
+		return SementoQR.generarSegmentos(texto);
+	}
+
+	@Benchmark
+	public List<SementoQR> optimos() {
+		return SementoQR.generarSegmentosOptimos(texto, version);
+	}
+
+}
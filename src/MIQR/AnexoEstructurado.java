@@ -0,0 +1,128 @@
+package MIQR;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+
+// Anexo estructurado (Structured Append): reparte un texto que no cabe, o que necesitaria una version muy grande,
+// en una serie de hasta 16 simbolos. Cada uno empieza con la cabecera de modo 0x3 con su posicion, el total y la paridad
+// del mensaje completo, y los lectores que lo soportan vuelven a unir el texto.
+// El texto se corta en partes de aproximadamente el mismo numero de bits, y los simbolos se codifican a la vez,
+// asi que el tiempo total es el de un simbolo pequeno y no el de uno enorme.
+public final class AnexoEstructurado {
+
+	// maximo de simbolos de una serie
+	public static final int MAX_SIMBOLOS = 16;
+
+	private AnexoEstructurado() {}
+
+
+        // igual que el siguiente, codificando en el pool fork-join comun
+	public static List<QR> codificar(String texto, OpcionesQR opciones) {
+		return codificar(texto, opciones, ForkJoinPool.commonPool());
+	}
+
+        // Codifica el texto en la menor cantidad de simbolos en la que cada uno cabe en el rango de versiones de las opciones;
+        // versionMAX es entonces el tamano maximo de cada simbolo. Si cabe en uno solo se devuelve un simbolo normal, sin cabecera.
+        // Los simbolos se devuelven en orden y se codifican en el ejecutor dado.
+	public static List<QR> codificar(String texto, OpcionesQR opciones, Executor ejecutor) {
+		List<List<SementoQR>> partes = dividir(texto, opciones);
+		List<CompletableFuture<QR>> pendientes = new ArrayList<>(partes.size());
+		for (List<SementoQR> segs : partes)
+			pendientes.add(CompletableFuture.supplyAsync(() -> opciones.codificar(segs), ejecutor));
+		List<QR> result = new ArrayList<>(partes.size());
+		try {
+			for (CompletableFuture<QR> f : pendientes)
+				result.add(f.join());
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw e;
+		}
+		return result;
+	}
+
+        // Devuelve los segmentos de cada simbolo de la serie, con su cabecera si hay mas de uno.
+        // Lanza IllegalArgumentException si el texto no cabe ni en MAX_SIMBOLOS simbolos.
+	public static List<List<SementoQR>> dividir(String texto, OpcionesQR opciones) {
+		Objects.requireNonNull(texto);
+		Objects.requireNonNull(opciones);
+		List<SementoQR> unico = segmentosParte(texto, null, opciones);
+		List<List<SementoQR>> result = new ArrayList<>();
+		if (unico != null) {
+			result.add(unico);
+			return result;
+		}
+
+		int paridad = 0;
+		for (byte b : texto.getBytes(StandardCharsets.UTF_8))
+			paridad ^= b & 0xFF;
+		int[] codigos = texto.codePoints().toArray();
+		long[] acumulado = new long[codigos.length + 1];  // peso en sextos de bit hasta cada caracter
+		for (int i = 0; i < codigos.length; i++)
+			acumulado[i + 1] = acumulado[i] + peso(codigos[i]);
+
+		busqueda:
+		for (int n = 2; n <= MAX_SIMBOLOS && n <= codigos.length; n++) {
+			result.clear();
+			for (int k = 0, inicio = 0; k < n; k++) {
+				int fin = k == n - 1 ? codigos.length : corte(acumulado, acumulado[codigos.length] * (k + 1) / n, inicio + 1, codigos.length - (n - 1 - k));
+				String parte = new String(codigos, inicio, fin - inicio);
+				List<SementoQR> segs = segmentosParte(parte, SementoQR.generarAnexoEstructurado(k, n, paridad), opciones);
+				if (segs == null)
+					continue busqueda;
+				result.add(segs);
+				inicio = fin;
+			}
+			return result;
+		}
+		throw new IllegalArgumentException("Datos muy largos");
+	}
+
+	// segmentos optimos de la parte precedidos por la cabecera, si caben en alguna version de las opciones; si no, null
+	private static List<SementoQR> segmentosParte(String parte, SementoQR cabecera, OpcionesQR opciones) {
+		int[] inicio = QR.INICIO_CLASE_VERSION;
+		for (int c = 0; c + 1 < inicio.length; c++) {
+			int lo = Math.max(opciones.versionmin, inicio[c]);
+			int hi = Math.min(opciones.versionMAX, inicio[c + 1] - 1);
+			if (lo > hi)
+				continue;
+			List<SementoQR> segs = new ArrayList<>();
+			if (cabecera != null)
+				segs.add(cabecera);
+			segs.addAll(SementoQR.generarSegmentosOptimos(parte, lo));
+			if (QR.versionMinima(segs, opciones.errorCorrectionLevel, lo, hi) != -1)
+				return segs;
+		}
+		return null;
+	}
+
+	// primer corte en [desde, hasta] cuyo peso acumulado llega al objetivo
+	private static int corte(long[] acumulado, long objetivo, int desde, int hasta) {
+		int lo = desde, hi = hasta;
+		while (lo < hi) {
+			int mitad = (lo + hi) >>> 1;
+			if (acumulado[mitad] >= objetivo)
+				hi = mitad;
+			else
+				lo = mitad + 1;
+		}
+		return lo;
+	}
+
+	// bits aproximados de un caracter, en sextos, segun el modo mas compacto que lo admite
+	private static int peso(int c) {
+		if ('0' <= c && c <= '9')
+			return 20;
+		if (SementoQR.indiceAlfanumerico(c) != -1)
+			return 33;
+		return (c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4) * 48;
+	}
+
+}
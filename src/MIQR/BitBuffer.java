@@ -5,55 +5,122 @@ import java.util.Objects;
 
 
 
-// esta clase se encarga de codificar en binario de lenguaje maquina a bajo nivel la cadena de datos que se reciba
+// esta clase se encarga de codificar en binario de lenguaje maquina a bajo nivel la cadena de datos que se reciba.
+// Los bits se juntan en un acumulador de 64 bits y se vuelcan al arreglo de bytes en bytes completos; solo los
+// ultimos (menos de 8) bits quedan pendientes en el acumulador. El arreglo puede venir del llamador y reutilizarse con reset().
 final class BitBuffer {
 
 	private byte[] datos;
-	private int longitudBit;
 
-	
-        // contructor 
+	// bytes completos ya escritos en datos
+	private int posicion;
+
+	// bits pendientes en la parte baja del acumulador, de 0 a 7
+	private long acumulador;
+	private int pendientes;
+
+
+        // contructor
         // crea un buffer vacio
 	public BitBuffer() {
-		datos = new byte[16];
-		longitudBit = 0;
+		this(new byte[16]);
+	}
+
+        // crea un buffer vacio que escribe sobre el arreglo dado; si se llena se reemplaza por uno mas grande
+	public BitBuffer(byte[] almacen) {
+		Objects.requireNonNull(almacen);
+		datos = almacen;
 	}
 
         //retorna el numero de bits en el buffer
 	public int bitLength() {
-		return longitudBit;
+		return posicion * 8 + pendientes;
 	}
 
-        //retorna una copia de todos los bytes 
+        //vacia el buffer conservando su arreglo
+	public void reset() {
+		posicion = 0;
+		acumulador = 0;
+		pendientes = 0;
+	}
+
+        //vacia el buffer y pasa a escribir sobre el arreglo dado
+	public void reset(byte[] almacen) {
+		Objects.requireNonNull(almacen);
+		datos = almacen;
+		reset();
+	}
+
+        //retorna una copia de todos los bytes
 	public byte[] obtenerBytes() {
-		return Arrays.copyOf(datos, (longitudBit + 7) / 8);
+		byte[] result = Arrays.copyOf(datos, (bitLength() + 7) / 8);
+		if (pendientes > 0)
+			result[posicion] = (byte)(acumulador << (8 - pendientes));
+		return result;
+	}
+
+        //retorna el arreglo interno sin copiarlo; solo tiene los bytes completos, y puede ser mas largo que los datos.
+        //Es el arreglo del llamador mientras no haya hecho falta crecer.
+	public byte[] arreglo() {
+		return datos;
 	}
 
         //apila dado un numero de bits de los valores dados en la secuencia
 	public void apilarBits(int val, int len) {
 		if (len < 0 || len > 32 || len < 32 && (val >>> len) != 0)
 			throw new IllegalArgumentException("valor fuera de rango");
-		asegurarCapacidad(longitudBit + len);
-		for (int i = len - 1; i >= 0; i--, longitudBit++)  // apila de bit a bit
-			datos[longitudBit >>> 3] |= ((val >>> i) & 1) << (7 - (longitudBit & 7));
+		acumulador = (acumulador << len) | (val & 0xFFFFFFFFL);
+		pendientes += len;
+		if (pendientes >= 8)
+			volcar();
+	}
+
+        //apila len bytes completos del arreglo dado a partir de desde
+	public void apilarBytes(byte[] b, int desde, int len) {
+		Objects.requireNonNull(b);
+		if (desde < 0 || len < 0 || desde > b.length - len)
+			throw new IndexOutOfBoundsException();
+		asegurarCapacidad(posicion + len);
+		if (pendientes == 0) {  // alineado: copia directa
+			System.arraycopy(b, desde, datos, posicion, len);
+			posicion += len;
+			return;
+		}
+		byte[] d = datos;
+		int p = pendientes, pos = posicion;
+		long acc = acumulador;
+		for (int i = desde, fin = desde + len; i < fin; i++) {  // desalineado: cada byte de salida junta dos de entrada
+			acc = (acc << 8) | (b[i] & 0xFF);
+			d[pos++] = (byte)(acc >>> p);
+		}
+		posicion = pos;
+		acumulador = acc & ((1L << p) - 1);
 	}
-	
-	
-	
+
         //agrega los datos de un segmento para este buffer
 	public void appendData(SementoQR seg) {
 		Objects.requireNonNull(seg);
-		asegurarCapacidad(longitudBit + seg.bitLength);
-		for (int i = 0; i < seg.bitLength; i++, longitudBit++) {  // apila de bit a bit
-			int bit = (seg.obtenerBytes(i >>> 3) >>> (7 - (i & 7))) & 1;
-			datos[longitudBit >>> 3] |= bit << (7 - (longitudBit & 7));
+		byte[] b = seg.datos();
+		int completos = seg.bitLength >>> 3, resto = seg.bitLength & 7;
+		apilarBytes(b, 0, completos);
+		if (resto > 0)
+			apilarBits((b[completos] & 0xFF) >>> (8 - resto), resto);
+	}
+
+        //escribe en datos los bytes completos del acumulador
+	private void volcar() {
+		asegurarCapacidad(posicion + pendientes / 8);
+		while (pendientes >= 8) {
+			pendientes -= 8;
+			datos[posicion++] = (byte)(acumulador >>> pendientes);
 		}
+		acumulador &= (1L << pendientes) - 1;
 	}
 
-        //expande la capacidad del buffer para mantener el tamano de los bits de datos
-	private void asegurarCapacidad(int newBitLen) {
-		while (datos.length * 8 < newBitLen)
-			datos = Arrays.copyOf(datos, datos.length * 2);
+        //expande la capacidad del buffer para mantener el numero de bytes dado
+	private void asegurarCapacidad(int bytes) {
+		if (datos.length < bytes)
+			datos = Arrays.copyOf(datos, Math.max(bytes, datos.length * 2));
 	}
-	
+
 }
@@ -0,0 +1,155 @@
+package MIQR;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+
+// Cache opcional, segura entre hilos y de tamaño acotado, delante de QR.codificacionDeSegmentos.
+// La llave es el contenido de los segmentos mas el nivel de correccion, el rango de versiones, la mascara y boostEcl.
+// Las entradas se reparten en franjas, cada una con su propio candado y su propio orden LRU, para que los hilos
+// que buscan llaves distintas casi nunca compitan. Los QR son inmutables, asi que se comparten tal cual.
+public final class CacheQR {
+
+	private final Franja[] franjas;
+	private final LongAdder aciertos = new LongAdder();
+	private final LongAdder fallos = new LongAdder();
+	private final LongAdder desalojos = new LongAdder();
+
+
+        // constructor con la cantidad maxima de simbolos guardados, repartidos en 16 franjas
+	public CacheQR(int maxEntradas) {
+		this(maxEntradas, 16);
+	}
+
+        // constructor eligiendo tambien el numero de franjas; cada franja guarda maxEntradas / numFranjas simbolos
+	public CacheQR(int maxEntradas, int numFranjas) {
+		if (maxEntradas < 1 || numFranjas < 1 || numFranjas > maxEntradas)
+			throw new IllegalArgumentException("valor fuera de rango");
+		franjas = new Franja[numFranjas];
+		for (int i = 0; i < numFranjas; i++)
+			franjas[i] = new Franja((maxEntradas + numFranjas - 1 - i) / numFranjas);
+	}
+
+        // igual que QR.codificacionDeSegmentos, devolviendo el simbolo guardado si ya se codifico con los mismos datos
+	public QR codificacionDeSegmentos(List<SementoQR> segs, QR.Ecc ecl, int versionmin, int versionMAX, int mask, boolean boostEcl) {
+		return codificar(segs, new OpcionesQR(ecl, versionmin, versionMAX, mask, boostEcl, QR.BusquedaMascara.SECUENCIAL));
+	}
+
+        // codifica con las opciones dadas pasando por la cache; la busqueda de mascara y la correccion en paralelo no forman
+        // parte de la llave porque no cambian el resultado. Si dos hilos fallan a la vez con la misma llave, ambos codifican y se guarda el primero.
+	public QR codificar(List<SementoQR> segs, OpcionesQR opciones) {
+		Objects.requireNonNull(segs);
+		Objects.requireNonNull(opciones);
+		Llave llave = new Llave(segs, opciones);
+		Franja f = franjas[((llave.hash ^ (llave.hash >>> 16)) & 0x7FFFFFFF) % franjas.length];
+		QR qr = f.obtener(llave);
+		if (qr != null) {
+			aciertos.increment();
+			return qr;
+		}
+		fallos.increment();
+		return f.guardar(llave, opciones.codificar(llave.segmentos));
+	}
+
+        // numero de busquedas que encontraron el simbolo
+	public long aciertos() {
+		return aciertos.sum();
+	}
+
+        // numero de busquedas que tuvieron que codificar
+	public long fallos() {
+		return fallos.sum();
+	}
+
+        // numero de simbolos sacados por falta de espacio
+	public long desalojos() {
+		return desalojos.sum();
+	}
+
+        // numero de simbolos guardados en este momento
+	public int tamano() {
+		int total = 0;
+		for (Franja f : franjas)
+			total += f.tamano();
+		return total;
+	}
+
+        // vacia la cache; los contadores no se reinician
+	public void limpiar() {
+		for (Franja f : franjas)
+			f.limpiar();
+	}
+
+	// una parte de la cache con su propio candado y orden LRU
+	private final class Franja {
+		private final LinkedHashMap<Llave, QR> entradas;
+
+		Franja(int capacidad) {
+			entradas = new LinkedHashMap<Llave, QR>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Llave, QR> mayor) {
+					if (size() <= capacidad)
+						return false;
+					desalojos.increment();
+					return true;
+				}
+			};
+		}
+
+		synchronized QR obtener(Llave llave) {
+			return entradas.get(llave);
+		}
+
+		synchronized QR guardar(Llave llave, QR qr) {
+			QR anterior = entradas.putIfAbsent(llave, qr);
+			return anterior != null ? anterior : qr;
+		}
+
+		synchronized int tamano() {
+			return entradas.size();
+		}
+
+		synchronized void limpiar() {
+			entradas.clear();
+		}
+	}
+
+	// contenido de los segmentos y opciones que determinan el simbolo
+	private static final class Llave {
+		final List<SementoQR> segmentos;
+		final QR.Ecc ecl;
+		final int versionmin, versionMAX, mask;
+		final boolean boostEcl;
+		final int hash;
+
+		Llave(List<SementoQR> segs, OpcionesQR o) {
+			segmentos = Collections.unmodifiableList(new ArrayList<>(segs));  // copia, por si el llamador cambia la lista
+			ecl = o.errorCorrectionLevel;
+			versionmin = o.versionmin;
+			versionMAX = o.versionMAX;
+			mask = o.mask;
+			boostEcl = o.boostEcl;
+			hash = Objects.hash(segmentos, ecl, versionmin, versionMAX, mask, boostEcl);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Llave))
+				return false;
+			Llave otra = (Llave)o;
+			return hash == otra.hash && ecl == otra.ecl && versionmin == otra.versionmin && versionMAX == otra.versionMAX
+				&& mask == otra.mask && boostEcl == otra.boostEcl && segmentos.equals(otra.segmentos);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
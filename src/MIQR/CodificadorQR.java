@@ -0,0 +1,118 @@
+package MIQR;
+
+import java.util.List;
+import java.util.Objects;
+
+
+// Codificador reutilizable que guarda todo su espacio de trabajo: el buffer de bits de los datos, el residuo de
+// correccion de un bloque, las palabras intercaladas, un puntaje de penalidad por version y una matriz de salida por version.
+// Una vez que ya codifico simbolos de una version, codificar otro de la misma version no crea objetos.
+// No es seguro compartir una instancia entre hilos; se usa una por hilo (por ejemplo con un ThreadLocal) o desde un pool.
+// La mascara automatica siempre se busca de forma secuencial, porque la busqueda paralela necesita una copia por candidato.
+// La matriz devuelta se escribe con las sobrecargas para MatrizBits de EscritorPNG, EscritorVectorial y QR.toImage, y se
+// comprueba con las de VerificadorQR, sin construir un QR.
+public final class CodificadorQR {
+
+	// palabras de codigo del simbolo mas grande (version 40)
+	private static final int MAX_PALABRAS = QR.obtenerNumeroFilasModuloDatos(40) / 8;
+
+	private final byte[] datos = new byte[MAX_PALABRAS];
+	private final byte[] codigo = new byte[MAX_PALABRAS];
+	private final BitBuffer bb = new BitBuffer(datos);
+	private final byte[] residuo = new byte[30];  // correccion de un bloque; ningun nivel usa mas de 30 bytes por bloque
+	private final PuntajePenalidad[] puntajes = new PuntajePenalidad[41];
+	private final MatrizBits[] matrices = new MatrizBits[41];
+
+	// datos del ultimo simbolo codificado
+	private int version;
+	private QR.Ecc nivel;
+	private int mascara = -1;
+
+
+        // constructor
+	public CodificadorQR() {}
+
+        // Codifica los segmentos en la matriz propia del codificador para la version elegida y la devuelve.
+        // La matriz se reutiliza, asi que solo es valida hasta la siguiente llamada con la misma version.
+	public MatrizBits codificar(List<SementoQR> segs, OpcionesQR opciones) {
+		int ver = elegirVersion(segs, opciones);
+		MatrizBits m = matrices[ver];
+		if (m == null) {
+			m = new MatrizBits(ver * 4 + 17);
+			matrices[ver] = m;
+		}
+		codificarEn(segs, opciones, ver, m);
+		return m;
+	}
+
+        // Codifica los segmentos en la matriz del llamador, que debe tener la dimension de la version elegida.
+        // Para fijar la version se usan opciones con versionmin igual a versionMAX.
+	public void codificar(List<SementoQR> segs, OpcionesQR opciones, MatrizBits destino) {
+		Objects.requireNonNull(destino);
+		int ver = elegirVersion(segs, opciones);
+		if (destino.size != ver * 4 + 17)
+			throw new IllegalArgumentException("Dimensiones distintas");
+		codificarEn(segs, opciones, ver, destino);
+	}
+
+        // version del ultimo simbolo codificado
+	public int version() {
+		return version;
+	}
+
+        // nivel de correccion del ultimo simbolo codificado, que puede ser mayor al pedido si boostEcl esta activo
+	public QR.Ecc nivel() {
+		return nivel;
+	}
+
+        // mascara del ultimo simbolo codificado
+	public int mascara() {
+		return mascara;
+	}
+
+	private static int elegirVersion(List<SementoQR> segs, OpcionesQR opciones) {
+		Objects.requireNonNull(segs);
+		Objects.requireNonNull(opciones);
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.BUSQUEDA_VERSION);
+		int ver = QR.versionMinima(segs, opciones.errorCorrectionLevel, opciones.versionmin, opciones.versionMAX);
+		if (ver == -1)
+			throw new IllegalArgumentException("Datos muy largos");
+		if (m != null)
+			m.terminar(ver, opciones.errorCorrectionLevel, -1, SementoQR.obtenerBitsTotales(segs, ver) / 8);
+		return ver;
+	}
+
+	// los mismos pasos que QR.codificacionDeSegmentos y el constructor de QR, sobre el espacio de trabajo propio
+	private void codificarEn(List<SementoQR> segs, OpcionesQR opciones, int ver, MatrizBits destino) {
+		QR.Ecc ecl = opciones.boostEcl ? QR.nivelMaximo(segs, opciones.errorCorrectionLevel, ver) : opciones.errorCorrectionLevel;
+		bb.reset(datos);
+		QR.escribirDatos(segs, ver, QR.getNumDataCodewords(ver, ecl) * 8, bb);
+
+		QR.agregarNivelCorreccion(ver, ecl, datos, codigo, residuo);
+
+		TablasVersion tablas = TablasVersion.obtener(ver);
+		int palabras = QR.obtenerNumeroFilasModuloDatos(ver) / 8;
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.COLOCACION);
+		destino.copiarDe(tablas.plantilla);
+		tablas.colocarPalabras(codigo, palabras, destino);
+		if (m != null)
+			m.terminar(ver, ecl, -1, palabras);
+
+		m = Medicion.iniciar(MetricasQR.Etapa.MASCARA);
+		int mask = opciones.mask;
+		if (mask == -1) {
+			if (puntajes[ver] == null)
+				puntajes[ver] = new PuntajePenalidad(destino.size);
+			mask = QR.elegirMascaraSecuencial(destino, tablas, ecl, puntajes[ver]);
+		}
+		QR.dibujarFormatoBits(destino, ecl, mask);
+		destino.xor(tablas.mascaras[mask]);
+		if (m != null)
+			m.terminar(ver, ecl, mask, destino.size * destino.size);
+
+		version = ver;
+		nivel = ecl;
+		mascara = mask;
+	}
+
+}
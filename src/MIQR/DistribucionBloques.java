@@ -0,0 +1,114 @@
+package MIQR;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+
+// Division en bloques de correccion de un (version, nivel) y la posicion final de cada byte en la secuencia intercalada.
+// Los primeros bloques son cortos y los demas tienen un byte de datos mas. En la secuencia intercalada va el byte i de
+// datos de cada bloque, uno tras otro, y despues el byte i de correccion de cada bloque, asi que:
+//   dato i < datosCorto del bloque j   ->  i * numeroBloques + j
+//   dato datosCorto del bloque largo j ->  datosCorto * numeroBloques + (j - bloquesCortos)
+//   correccion e del bloque j          ->  totalDatos + e * numeroBloques + j
+// Se construyen una vez por (version, nivel) la primera vez que se piden y son de solo lectura.
+final class DistribucionBloques {
+
+	private static final AtomicReferenceArray<DistribucionBloques> DISTRIBUCIONES = new AtomicReferenceArray<>(4 * 41);
+
+	final int numeroBloques;
+	final int bloquesCortos;
+	final int datosCorto;      // bytes de datos de un bloque corto
+	final int largoCorreccion; // bytes de correccion por bloque
+	final int totalDatos;
+	final int totalPalabras;
+
+	// posicion en el arreglo de datos donde empieza cada bloque
+	private final int[] inicioDatos;
+
+	final QR.ReedSolomonGenerator rs;
+
+
+	private DistribucionBloques(int version, QR.Ecc ecl) {
+		numeroBloques = QR.numeroBloques(version, ecl);
+		largoCorreccion = QR.largoCorreccion(version, ecl);
+		totalPalabras = QR.obtenerNumeroFilasModuloDatos(version) / 8;
+		totalDatos = totalPalabras - numeroBloques * largoCorreccion;
+		bloquesCortos = numeroBloques - totalPalabras % numeroBloques;
+		datosCorto = totalPalabras / numeroBloques - largoCorreccion;
+		inicioDatos = new int[numeroBloques];
+		for (int j = 0, k = 0; j < numeroBloques; j++) {
+			inicioDatos[j] = k;
+			k += largoDatos(j);
+		}
+		rs = QR.ReedSolomonGenerator.obtener(largoCorreccion);
+	}
+
+        // devuelve la distribucion de la version y nivel dados, construyendola si es la primera vez
+	static DistribucionBloques obtener(int version, QR.Ecc ecl) {
+		if (version < 1 || version > 40)
+			throw new IllegalArgumentException("Version fuera del rango");
+		int i = version * 4 + ecl.ordinal() - 4;
+		DistribucionBloques d = DISTRIBUCIONES.get(i);
+		if (d == null) {
+			d = new DistribucionBloques(version, ecl);
+			if (!DISTRIBUCIONES.compareAndSet(i, null, d))
+				d = DISTRIBUCIONES.get(i);  // otro hilo la construyo primero
+		}
+		return d;
+	}
+
+        // bytes de datos del bloque j
+	int largoDatos(int j) {
+		return j < bloquesCortos ? datosCorto : datosCorto + 1;
+	}
+
+        // posicion en el arreglo de datos donde empieza el bloque j
+	int inicioDatos(int j) {
+		return inicioDatos[j];
+	}
+
+        // bloque al que pertenece el byte k del arreglo de datos
+	int bloqueDe(int k) {
+		int cortos = bloquesCortos * datosCorto;
+		return k < cortos ? k / datosCorto : bloquesCortos + (k - cortos) / (datosCorto + 1);
+	}
+
+        // posicion en la secuencia intercalada del byte k del arreglo de datos
+	int posicionDato(int k) {
+		int j = bloqueDe(k);
+		int i = k - inicioDatos[j];
+		return i < datosCorto ? i * numeroBloques + j : datosCorto * numeroBloques + j - bloquesCortos;
+	}
+
+        // posicion en la secuencia intercalada del byte e de correccion del bloque j
+	int posicionCorreccion(int j, int e) {
+		return totalDatos + e * numeroBloques + j;
+	}
+
+        // Calcula la correccion de todos los bloques y escribe datos y correccion en su posicion intercalada de destino.
+        // residuo es espacio de trabajo de al menos largoCorreccion bytes.
+	void codificar(byte[] datos, byte[] destino, byte[] residuo) {
+		for (int j = 0; j < numeroBloques; j++)
+			codificarBloque(j, datos, destino, residuo);
+	}
+
+        // Igual que el anterior repartiendo los bloques en el pool fork-join comun; cada bloque escribe en posiciones distintas.
+	void codificarParalelo(byte[] datos, byte[] destino) {
+		IntStream.range(0, numeroBloques).parallel().forEach(j -> codificarBloque(j, datos, destino, new byte[largoCorreccion]));
+	}
+
+	// el residuo se calcula leyendo el bloque directo del arreglo de datos, y luego cada byte va a su posicion final
+	private void codificarBloque(int j, byte[] datos, byte[] destino, byte[] residuo) {
+		int inicio = inicioDatos[j];
+		int largo = largoDatos(j);
+		rs.calcularResiduo(datos, inicio, largo, residuo, 0);
+		int nb = numeroBloques;
+		for (int i = 0, pos = j; i < datosCorto; i++, pos += nb)
+			destino[pos] = datos[inicio + i];
+		if (largo > datosCorto)
+			destino[datosCorto * nb + j - bloquesCortos] = datos[inicio + datosCorto];
+		for (int e = 0, pos = totalDatos + j; e < largoCorreccion; e++, pos += nb)
+			destino[pos] = residuo[e];
+	}
+
+}
@@ -0,0 +1,159 @@
+package MIQR;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+// Escribe simbolos QR como PNG en escala de grises de 1 bit, fila por fila, sin construir la imagen completa.
+// Una instancia reutiliza su Deflater y sus buffers entre simbolos; no es segura para usarse desde varios hilos a la vez.
+public final class EscritorPNG implements Closeable {
+
+	private static final byte[] FIRMA = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+	// tamaño maximo de los datos de cada chunk IDAT
+	private static final int TAMANO_IDAT = 32 * 1024;
+
+	private final Deflater deflater;
+	private final CRC32 crc = new CRC32();
+	private final byte[] cabecera = new byte[8];
+	private final byte[] ihdr = new byte[13];
+	private final byte[] idat = new byte[TAMANO_IDAT];
+	private int idatLongitud;
+	private byte[] linea = new byte[0];
+
+
+        // constructor con el nivel de compresion por defecto
+	public EscritorPNG() {
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+
+        // constructor con el nivel de compresion de Deflater dado (0 a 9, o -1 por defecto)
+	public EscritorPNG(int nivelCompresion) {
+		deflater = new Deflater(nivelCompresion);
+	}
+
+        // Escribe el simbolo en el canal dado. El canal no se cierra.
+	public void escribir(QR qr, int scale, int border, WritableByteChannel canal) throws IOException {
+		Objects.requireNonNull(canal);
+		escribir(qr, scale, border, Channels.newOutputStream(canal));
+	}
+
+        // Escribe el simbolo como PNG en la salida dada, con cada modulo de scale * scale pixeles y border modulos de borde blanco.
+        // La salida no se cierra ni se vacia.
+	public void escribir(QR qr, int scale, int border, OutputStream salida) throws IOException {
+		Objects.requireNonNull(qr);
+		escribir(qr.matriz(), scale, border, salida, qr.version, qr.errorCorrectionLevel, qr.mask);
+	}
+
+        // Igual que el anterior para una matriz suelta, como las de CodificadorQR y PlantillaEtiqueta.
+	public void escribir(MatrizBits matriz, int scale, int border, OutputStream salida) throws IOException {
+		Objects.requireNonNull(matriz);
+		escribir(matriz, scale, border, salida, QR.versionDeTamano(matriz.size), null, -1);
+	}
+
+	// la version, el nivel y la mascara solo se usan en las metricas
+	private void escribir(MatrizBits matriz, int scale, int border, OutputStream salida, int version, QR.Ecc ecl, int mask) throws IOException {
+		Objects.requireNonNull(salida);
+		if (scale <= 0 || border < 0)
+			throw new IllegalArgumentException("valor fuera de rango");
+		long anchoLargo = (matriz.size + border * 2L) * scale;
+		if (anchoLargo > Integer.MAX_VALUE / 2)
+			throw new IllegalArgumentException("Imagen demasiado grande");
+		int ancho = (int)anchoLargo;
+		int bytesPorFila = (ancho + 7) / 8;
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.RENDERIZADO);
+
+		// cada linea lleva el byte de filtro (0, sin filtro) seguido de los pixeles
+		if (linea.length != bytesPorFila + 1)
+			linea = new byte[bytesPorFila + 1];
+
+		salida.write(FIRMA);
+		escribirEntero(ihdr, 0, ancho);
+		escribirEntero(ihdr, 4, ancho);
+		ihdr[8] = 1;   // 1 bit por pixel
+		ihdr[9] = 0;   // escala de grises
+		ihdr[10] = 0;  // compresion deflate
+		ihdr[11] = 0;  // filtro adaptativo
+		ihdr[12] = 0;  // sin entrelazado
+		escribirChunk(salida, "IHDR", ihdr, 13);
+
+		deflater.reset();
+		idatLongitud = 0;
+
+		// borde superior, filas de modulos repetidas scale veces y borde inferior
+		Arrays.fill(linea, (byte)0xFF);
+		linea[0] = 0;
+		for (int k = 0; k < border * scale; k++)
+			comprimir(salida, linea);
+		for (int y = 0; y < matriz.size; y++) {
+			Arrays.fill(linea, 1, linea.length, (byte)0xFF);
+			QR.pintarFilaBinaria(matriz, y, linea, 1, scale, border);
+			for (int k = 0; k < scale; k++)
+				comprimir(salida, linea);
+		}
+		Arrays.fill(linea, 1, linea.length, (byte)0xFF);
+		for (int k = 0; k < border * scale; k++)
+			comprimir(salida, linea);
+
+		deflater.finish();
+		while (!deflater.finished())
+			vaciarDeflater(salida);
+		if (idatLongitud > 0)
+			escribirChunk(salida, "IDAT", idat, idatLongitud);
+		escribirChunk(salida, "IEND", idat, 0);
+		if (m != null)
+			m.terminar(version, ecl, mask, deflater.getBytesWritten());
+	}
+
+        // libera la memoria nativa del Deflater; la instancia ya no puede usarse
+	@Override
+	public void close() {
+		deflater.end();
+	}
+
+	// pasa una linea al Deflater y escribe los chunks IDAT que se llenen
+	private void comprimir(OutputStream salida, byte[] datos) throws IOException {
+		deflater.setInput(datos);
+		while (!deflater.needsInput())
+			vaciarDeflater(salida);
+	}
+
+	// saca del Deflater lo que quepa en el buffer IDAT y lo escribe si se lleno
+	private void vaciarDeflater(OutputStream salida) throws IOException {
+		idatLongitud += deflater.deflate(idat, idatLongitud, idat.length - idatLongitud);
+		if (idatLongitud == idat.length) {
+			escribirChunk(salida, "IDAT", idat, idatLongitud);
+			idatLongitud = 0;
+		}
+	}
+
+	// escribe un chunk: longitud, tipo, datos y CRC del tipo mas los datos
+	private void escribirChunk(OutputStream salida, String tipo, byte[] datos, int longitud) throws IOException {
+		escribirEntero(cabecera, 0, longitud);
+		for (int i = 0; i < 4; i++)
+			cabecera[4 + i] = (byte)tipo.charAt(i);
+		salida.write(cabecera, 0, 8);
+		salida.write(datos, 0, longitud);
+		crc.reset();
+		crc.update(cabecera, 4, 4);
+		crc.update(datos, 0, longitud);
+		escribirEntero(cabecera, 0, (int)crc.getValue());
+		salida.write(cabecera, 0, 4);
+	}
+
+	// escribe un entero de 32 bits en orden big-endian
+	private static void escribirEntero(byte[] destino, int desde, int valor) {
+		destino[desde] = (byte)(valor >>> 24);
+		destino[desde + 1] = (byte)(valor >>> 16);
+		destino[desde + 2] = (byte)(valor >>> 8);
+		destino[desde + 3] = (byte)valor;
+	}
+
+}
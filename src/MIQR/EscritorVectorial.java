@@ -0,0 +1,162 @@
+package MIQR;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+
+
+// Escribe simbolos QR como graficos vectoriales (SVG o PDF) directamente desde la matriz de modulos.
+// Los modulos negros se agrupan en rectangulos: cada corrida horizontal se extiende hacia abajo mientras
+// las filas siguientes tengan exactamente la misma corrida, asi el trazo tiene muchos menos elementos que modulos.
+public final class EscritorVectorial {
+
+	private EscritorVectorial() {}
+
+
+        // Escribe el simbolo como SVG con border modulos de borde blanco; un modulo mide una unidad del viewBox.
+        // El Writer no se cierra ni se vacia.
+	public static void escribirSVG(QR qr, int border, Writer salida) throws IOException {
+		Objects.requireNonNull(qr);
+		escribirSVG(qr.matriz(), border, salida);
+	}
+
+        // Igual que el anterior para una matriz suelta, como las de CodificadorQR y PlantillaEtiqueta.
+	public static void escribirSVG(MatrizBits matriz, int border, Writer salida) throws IOException {
+		Objects.requireNonNull(matriz);
+		Objects.requireNonNull(salida);
+		if (border < 0)
+			throw new IllegalArgumentException("valor fuera de rango");
+		int ancho = matriz.size + border * 2;
+		salida.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		salida.write("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" viewBox=\"0 0 " + ancho + " " + ancho + "\" stroke=\"none\">\n");
+		salida.write("\t<rect width=\"100%\" height=\"100%\" fill=\"#FFFFFF\"/>\n");
+		salida.write("\t<path d=\"");
+		StringBuilder sb = new StringBuilder(32);
+		recorrerRectangulos(matriz, (x, y, w, h) -> {
+			sb.setLength(0);
+			sb.append('M').append(x + border).append(',').append(y + border)
+			  .append('h').append(w).append('v').append(h).append('h').append(-w).append('z');
+			salida.append(sb);
+		});
+		salida.write("\" fill=\"#000000\"/>\n");
+		salida.write("</svg>\n");
+	}
+
+        // Escribe el simbolo como un PDF de una pagina, cada modulo de tamanoModulo puntos y border modulos de borde blanco.
+        // El contenido se escribe mientras se recorre la matriz; el OutputStream no se cierra ni se vacia.
+	public static void escribirPDF(QR qr, int border, double tamanoModulo, OutputStream salida) throws IOException {
+		Objects.requireNonNull(qr);
+		escribirPDF(qr.matriz(), border, tamanoModulo, salida);
+	}
+
+        // Igual que el anterior para una matriz suelta, como las de CodificadorQR y PlantillaEtiqueta.
+	public static void escribirPDF(MatrizBits matriz, int border, double tamanoModulo, OutputStream salida) throws IOException {
+		Objects.requireNonNull(matriz);
+		Objects.requireNonNull(salida);
+		if (border < 0 || !(tamanoModulo > 0))
+			throw new IllegalArgumentException("valor fuera de rango");
+		int ancho = matriz.size + border * 2;
+		String lado = formatearNumero(ancho * tamanoModulo);
+		SalidaContada out = new SalidaContada(salida);
+		long[] posiciones = new long[6];
+
+		out.escribir("%PDF-1.4\n%âãÏÓ\n");
+		posiciones[1] = out.contador;
+		out.escribir("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+		posiciones[2] = out.contador;
+		out.escribir("2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
+		posiciones[3] = out.contador;
+		out.escribir("3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + lado + " " + lado + "] /Resources << >> /Contents 4 0 R >>\nendobj\n");
+
+		// el contenido usa unidades de modulo con el eje y hacia abajo, igual que la matriz
+		posiciones[4] = out.contador;
+		out.escribir("4 0 obj\n<< /Length 5 0 R >>\nstream\n");
+		long inicio = out.contador;
+		String escala = formatearNumero(tamanoModulo);
+		out.escribir("q\n1 g\n0 0 " + lado + " " + lado + " re\nf\n");
+		out.escribir(escala + " 0 0 -" + escala + " 0 " + lado + " cm\n0 g\n");
+		StringBuilder sb = new StringBuilder(32);
+		recorrerRectangulos(matriz, (x, y, w, h) -> {
+			sb.setLength(0);
+			sb.append(x + border).append(' ').append(y + border).append(' ').append(w).append(' ').append(h).append(" re\n");
+			out.escribir(sb);
+		});
+		out.escribir("f\nQ\n");
+		long longitud = out.contador - inicio;
+		out.escribir("endstream\nendobj\n");
+		posiciones[5] = out.contador;
+		out.escribir("5 0 obj\n" + longitud + "\nendobj\n");
+
+		long xref = out.contador;
+		out.escribir("xref\n0 6\n0000000000 65535 f \n");
+		for (int i = 1; i < posiciones.length; i++)
+			out.escribir(String.format(Locale.ROOT, "%010d 00000 n \n", posiciones[i]));
+		out.escribir("trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+	}
+
+	// recibe cada rectangulo negro en coordenadas de modulo, sin contar el borde
+	interface ReceptorRectangulo {
+		void rectangulo(int x, int y, int ancho, int alto) throws IOException;
+	}
+
+        // Recorre los rectangulos que cubren exactamente los modulos negros, de arriba a abajo y de izquierda a derecha.
+	static void recorrerRectangulos(MatrizBits m, ReceptorRectangulo receptor) throws IOException {
+		int size = m.size;
+		for (int y = 0; y < size; y++) {
+			for (int x0 = m.siguiente(y, 0, true); x0 < size; x0 = m.siguiente(y, x0, true)) {
+				int x1 = m.siguiente(y, x0, false);
+				// si la fila de arriba tiene la misma corrida, ya quedo dentro de un rectangulo anterior
+				if (y == 0 || !corridaExacta(m, y - 1, x0, x1)) {
+					int alto = 1;
+					while (y + alto < size && corridaExacta(m, y + alto, x0, x1))
+						alto++;
+					receptor.rectangulo(x0, y, x1 - x0, alto);
+				}
+				x0 = x1;
+			}
+		}
+	}
+
+	// indica si la fila y tiene una corrida de modulos negros que empieza en x0 y termina justo antes de x1
+	private static boolean corridaExacta(MatrizBits m, int y, int x0, int x1) {
+		return (x0 == 0 || !m.get(x0 - 1, y)) && m.get(x0, y) && m.siguiente(y, x0, false) == x1;
+	}
+
+	// numero sin notacion cientifica y sin decimales sobrantes, como lo espera PDF
+	private static String formatearNumero(double valor) {
+		if (valor == Math.rint(valor))
+			return Long.toString((long)valor);
+		return String.format(Locale.ROOT, "%.4f", valor).replaceAll("0+$", "");
+	}
+
+	// salida que cuenta los bytes escritos, para las posiciones de la tabla xref
+	private static final class SalidaContada extends FilterOutputStream {
+
+		long contador;
+
+		SalidaContada(OutputStream salida) {
+			super(salida);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			contador++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			contador += len;
+		}
+
+		void escribir(CharSequence texto) throws IOException {
+			write(texto.toString().getBytes(StandardCharsets.ISO_8859_1));
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package MIQR;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+// Eventos de JDK Flight Recorder, uno por etapa de MetricasQR.Etapa, en la categoria MIQR. Solo se crean mientras una
+// grabacion tenga habilitado su tipo, por ejemplo: java -XX:StartFlightRecording:filename=qr.jfr ...
+// El proyecto compila para Java 8, que no trae jdk.jfr, y el modulo puede faltar en tiempo de ejecucion, asi que
+// ninguna clase del paquete nombra un tipo de jdk.jfr: los tipos de evento se construyen con jdk.jfr.EventFactory
+// por reflexion dentro de la clase Jfr, que solo se carga despues de comprobar que jdk.jfr.Event existe.
+// Si no existe, o algo falla al construir los tipos, los eventos quedan deshabilitados para siempre.
+final class EventosQR {
+
+	// verdadero si la JVM trae jdk.jfr
+	private static final boolean DISPONIBLE = disponible();
+
+	private EventosQR() {}
+
+
+	private static boolean disponible() {
+		try {
+			Class.forName("jdk.jfr.Event", false, EventosQR.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError | SecurityException e) {
+			return false;
+		}
+	}
+
+        // indica si alguna grabacion en curso registra los eventos de la etapa
+	static boolean habilitado(MetricasQR.Etapa etapa) {
+		return DISPONIBLE && Jfr.habilitado(etapa);
+	}
+
+        // crea e inicia el evento de la etapa; solo se llama si habilitado(etapa) fue verdadero
+	static Object iniciar(MetricasQR.Etapa etapa) {
+		return Jfr.iniciar(etapa);
+	}
+
+        // termina el evento y lo guarda con sus campos si la grabacion lo pide; -1 o null cuando no aplican a la etapa
+	static void terminar(Object evento, int version, QR.Ecc ecl, int mascara, long bytes) {
+		Jfr.terminar(evento, version, ecl, mascara, bytes);
+	}
+
+	// Todo lo que toca jdk.jfr. Sus metodos solo se llaman si DISPONIBLE es verdadero, asi que se carga a lo sumo entonces.
+	private static final class Jfr {
+
+		// nombre, etiqueta y descripcion de cada etapa, en el orden de MetricasQR.Etapa
+		private static final String[][] DESCRIPCIONES = {
+			{"MIQR.Segmentacion", "QR: segmentacion", "Division del texto en segmentos"},
+			{"MIQR.BusquedaVersion", "QR: busqueda de version", "Eleccion de la version mas pequena en la que caben los segmentos"},
+			{"MIQR.Correccion", "QR: correccion de errores", "Reed-Solomon de cada bloque e intercalado de las palabras"},
+			{"MIQR.Colocacion", "QR: colocacion", "Colocacion de las palabras de codigo en la matriz"},
+			{"MIQR.Mascara", "QR: mascara", "Eleccion y aplicacion de la mascara"},
+			{"MIQR.Renderizado", "QR: renderizado", "Imagen o PNG del simbolo"}};
+
+		// jdk.jfr.EventFactory y jdk.jfr.EventType de cada etapa; null si no se pudieron construir
+		private static final Object[] FABRICAS;
+		private static final Object[] TIPOS;
+
+		// metodos de jdk.jfr usados en cada evento
+		private static final MethodHandle NUEVO;          // EventFactory.newEvent()
+		private static final MethodHandle HABILITADO;     // EventType.isEnabled()
+		private static final MethodHandle BEGIN;          // Event.begin()
+		private static final MethodHandle END;            // Event.end()
+		private static final MethodHandle SHOULD_COMMIT;  // Event.shouldCommit()
+		private static final MethodHandle SET;            // Event.set(int, Object)
+		private static final MethodHandle COMMIT;         // Event.commit()
+
+		static {
+			Object[] fabricas = null, tipos = null;
+			MethodHandle nuevo = null, habilitado = null, begin = null, end = null, shouldCommit = null, set = null, commit = null;
+			try {
+				ClassLoader cl = EventosQR.class.getClassLoader();
+				Class<?> evento = Class.forName("jdk.jfr.Event", false, cl);
+				Class<?> fabrica = Class.forName("jdk.jfr.EventFactory", false, cl);
+				Class<?> tipo = Class.forName("jdk.jfr.EventType", false, cl);
+				Class<?> elemento = Class.forName("jdk.jfr.AnnotationElement", false, cl);
+				Class<?> descriptor = Class.forName("jdk.jfr.ValueDescriptor", false, cl);
+				Constructor<?> nuevoElemento = elemento.getConstructor(Class.class, Object.class);
+				Constructor<?> nuevoDescriptor = descriptor.getConstructor(Class.class, String.class, List.class);
+
+				// campos comunes
+				List<Object> campos = Arrays.asList(
+					nuevoDescriptor.newInstance(int.class, "version", anotaciones(nuevoElemento, cl, "Label", "Version")),
+					nuevoDescriptor.newInstance(String.class, "ecc", anotaciones(nuevoElemento, cl, "Label", "Nivel de correccion")),
+					nuevoDescriptor.newInstance(int.class, "mascara", anotaciones(nuevoElemento, cl, "Label", "Mascara")),
+					nuevoDescriptor.newInstance(long.class, "bytes", anotaciones(nuevoElemento, cl, "Label", "Bytes", "DataAmount", "BYTES")));
+
+				Method crear = fabrica.getMethod("create", List.class, List.class);
+				Method obtenerTipo = fabrica.getMethod("getEventType");
+				fabricas = new Object[DESCRIPCIONES.length];
+				tipos = new Object[DESCRIPCIONES.length];
+				for (int i = 0; i < DESCRIPCIONES.length; i++) {
+					String[] d = DESCRIPCIONES[i];
+					Object categoria = Array.newInstance(String.class, 1);
+					Array.set(categoria, 0, "MIQR");
+					List<Object> anotaciones = anotaciones(nuevoElemento, cl, "Name", d[0], "Label", d[1], "Description", d[2]);
+					anotaciones.add(nuevoElemento.newInstance(Class.forName("jdk.jfr.Category", false, cl), categoria));
+					fabricas[i] = crear.invoke(null, anotaciones, campos);
+					tipos[i] = obtenerTipo.invoke(fabricas[i]);
+				}
+
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				nuevo = lookup.findVirtual(fabrica, "newEvent", MethodType.methodType(evento));
+				habilitado = lookup.findVirtual(tipo, "isEnabled", MethodType.methodType(boolean.class));
+				begin = lookup.findVirtual(evento, "begin", MethodType.methodType(void.class));
+				end = lookup.findVirtual(evento, "end", MethodType.methodType(void.class));
+				shouldCommit = lookup.findVirtual(evento, "shouldCommit", MethodType.methodType(boolean.class));
+				set = lookup.findVirtual(evento, "set", MethodType.methodType(void.class, int.class, Object.class));
+				commit = lookup.findVirtual(evento, "commit", MethodType.methodType(void.class));
+			} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+				fabricas = null;
+				tipos = null;
+			}
+			FABRICAS = fabricas;
+			TIPOS = tipos;
+			NUEVO = nuevo;
+			HABILITADO = habilitado;
+			BEGIN = begin;
+			END = end;
+			SHOULD_COMMIT = shouldCommit;
+			SET = set;
+			COMMIT = commit;
+		}
+
+		// lista de jdk.jfr.AnnotationElement con los pares (anotacion de jdk.jfr, valor) dados
+		private static List<Object> anotaciones(Constructor<?> nuevoElemento, ClassLoader cl, String... pares) throws ReflectiveOperationException {
+			List<Object> result = new ArrayList<>();
+			for (int i = 0; i < pares.length; i += 2)
+				result.add(nuevoElemento.newInstance(Class.forName("jdk.jfr." + pares[i], false, cl), pares[i + 1]));
+			return result;
+		}
+
+		static boolean habilitado(MetricasQR.Etapa etapa) {
+			if (TIPOS == null)
+				return false;
+			try {
+				return (boolean)HABILITADO.invoke(TIPOS[etapa.ordinal()]);
+			} catch (Throwable e) {
+				return false;
+			}
+		}
+
+		static Object iniciar(MetricasQR.Etapa etapa) {
+			try {
+				Object evento = NUEVO.invoke(FABRICAS[etapa.ordinal()]);
+				BEGIN.invoke(evento);
+				return evento;
+			} catch (Throwable e) {
+				return null;
+			}
+		}
+
+		static void terminar(Object evento, int version, QR.Ecc ecl, int mascara, long bytes) {
+			if (evento == null)
+				return;
+			try {
+				END.invoke(evento);
+				if ((boolean)SHOULD_COMMIT.invoke(evento)) {
+					SET.invoke(evento, 0, (Object)version);
+					SET.invoke(evento, 1, (Object)(ecl == null ? null : ecl.name()));
+					SET.invoke(evento, 2, (Object)mascara);
+					SET.invoke(evento, 3, (Object)bytes);
+					COMMIT.invoke(evento);
+				}
+			} catch (Throwable e) {
+				// un evento que no se pudo guardar no debe romper la codificacion
+			}
+		}
+	}
+
+}
@@ -0,0 +1,274 @@
+package MIQR;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+// Modo de linea de comandos sin interfaz grafica, para servidores. Lee un texto por linea (o una columna de un CSV)
+// de un archivo o de la entrada estandar, codifica en paralelo y escribe un archivo por simbolo en un directorio
+// o todos dentro de un .zip. Al final informa cuantos simbolos se generaron por segundo.
+// Ninguno de los formatos usa AWT: el PNG se escribe con EscritorPNG y el SVG con EscritorVectorial.
+public final class LineaComandos {
+
+	private static final String USO =
+		"uso: java -cp LAB_QR.jar MIQR.LineaComandos [opciones]\n"
+		+ "  -i, --entrada ARCHIVO   archivo de entrada, una entrada por linea (por defecto la entrada estandar)\n"
+		+ "      --csv COLUMNA       toma la columna dada (desde 0) de cada linea CSV\n"
+		+ "  -o, --salida RUTA       directorio de salida, o un archivo .zip (por defecto el directorio actual)\n"
+		+ "  -f, --formato FORMATO   png, svg o raw (PBM binario de un pixel por modulo, sin borde); por defecto png\n"
+		+ "  -e, --ecc NIVEL         L, M, Q o H; por defecto L\n"
+		+ "  -s, --escala N          pixeles por modulo en png; por defecto 10\n"
+		+ "  -b, --borde N           modulos de borde en png y svg; por defecto 4\n"
+		+ "      --vmin N, --vmax N  rango de versiones; por defecto 1 a 40\n"
+		+ "  -m, --mascara N         mascara de 0 a 7, o -1 automatica; por defecto -1\n"
+		+ "  -t, --hilos N           hilos de codificacion; por defecto los procesadores disponibles\n"
+		+ "  -h, --ayuda             muestra esta ayuda\n"
+		+ "      --verificar TASA    decodifica de vuelta esa fraccion de los simbolos (0 a 1) y cuenta como error\n"
+		+ "                          los que no coinciden; por defecto 0\n";
+
+	private enum Formato { PNG, SVG, RAW }
+
+	private File entrada;
+	private int columnaCsv = -1;
+	private File salida = new File(".");
+	private Formato formato = Formato.PNG;
+	private QR.Ecc ecc = QR.Ecc.LOW;
+	private int escala = 10;
+	private int borde = 4;
+	private int versionmin = 1;
+	private int versionMAX = 40;
+	private int mascara = -1;
+	private int hilos = Runtime.getRuntime().availableProcessors();
+	private double tasaVerificacion;
+	private OpcionesQR opciones;
+	private VerificadorQR verificador;
+
+	// escritores PNG del lote, para reutilizar su Deflater entre simbolos; se cierran al terminar el lote
+	private PoolEscritoresPNG escritoresPNG;
+
+	// se pidio la ayuda con -h o --ayuda
+	private boolean ayuda;
+
+	private LineaComandos() {}
+
+
+	public static void main(String[] args) {
+		LineaComandos cli = new LineaComandos();
+		try {
+			cli.leerArgumentos(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.print(USO);
+			System.exit(2);
+			return;
+		}
+		if (cli.ayuda) {
+			System.out.print(USO);
+			System.exit(0);
+			return;
+		}
+		try {
+			System.exit(cli.ejecutar() == 0 ? 0 : 1);
+		} catch (IOException | UncheckedIOException | InterruptedException e) {
+			System.err.println("error: " + e);
+			System.exit(1);
+		}
+	}
+
+	// interpreta los argumentos; lanza IllegalArgumentException con el problema encontrado
+	private void leerArgumentos(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String op = args[i];
+			if (op.equals("-h") || op.equals("--ayuda")) {
+				ayuda = true;
+				return;
+			}
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("falta el valor de " + op);
+			String valor = args[++i];
+			switch (op) {
+				case "-i": case "--entrada":  entrada = new File(valor);  break;
+				case "--csv":                 columnaCsv = entero(op, valor);  break;
+				case "-o": case "--salida":   salida = new File(valor);  break;
+				case "-f": case "--formato":
+					try {
+						formato = Formato.valueOf(valor.toUpperCase(Locale.ROOT));
+					} catch (IllegalArgumentException e) {
+						throw new IllegalArgumentException("formato desconocido: " + valor);
+					}
+					break;
+				case "-e": case "--ecc":      ecc = OpcionesQR.leerNivel(valor);  break;
+				case "-s": case "--escala":   escala = entero(op, valor);  break;
+				case "-b": case "--borde":    borde = entero(op, valor);  break;
+				case "--vmin":                versionmin = entero(op, valor);  break;
+				case "--vmax":                versionMAX = entero(op, valor);  break;
+				case "-m": case "--mascara":  mascara = entero(op, valor);  break;
+				case "-t": case "--hilos":    hilos = entero(op, valor);  break;
+				case "--verificar":
+					try {
+						tasaVerificacion = Double.parseDouble(valor);
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("valor invalido para " + op + ": " + valor);
+					}
+					break;
+				default:  throw new IllegalArgumentException("opcion desconocida: " + op);
+			}
+		}
+		if (escala < 1 || borde < 0 || hilos < 1 || !(0 <= tasaVerificacion && tasaVerificacion <= 1))
+			throw new IllegalArgumentException("valor fuera de rango");
+		opciones = new OpcionesQR(ecc, versionmin, versionMAX, mascara, false, QR.BusquedaMascara.SECUENCIAL);
+		if (tasaVerificacion > 0)
+			verificador = new VerificadorQR(tasaVerificacion);
+	}
+
+	// codifica todas las entradas; devuelve el numero de entradas que fallaron
+	private int ejecutar() throws IOException, InterruptedException {
+		boolean zip = salida.getName().toLowerCase(Locale.ROOT).endsWith(".zip");
+		if (!zip && !salida.isDirectory() && !salida.mkdirs())
+			throw new IOException("no se pudo crear el directorio " + salida);
+
+		ForkJoinPool pool = new ForkJoinPool(hilos);
+		int[] errores = {0};
+		long inicio = System.nanoTime();
+		long total;
+		try (BufferedReader lector = new BufferedReader(new InputStreamReader(
+				entrada == null ? System.in : new FileInputStream(entrada), StandardCharsets.UTF_8));
+				ZipOutputStream archivo = zip ? new ZipOutputStream(new FileOutputStream(salida)) : null;
+				PoolEscritoresPNG escritores = new PoolEscritoresPNG(hilos)) {
+			escritoresPNG = escritores;
+			Iterator<String> lineas = lector.lines().iterator();
+			LoteQR lote = new LoteQR(opciones, pool, hilos * 4);
+			total = lote.procesar(lineas, linea -> renderizar(codificar(extraerTexto(linea))), (indice, linea, datos, error) -> {
+				if (error != null) {
+					errores[0]++;
+					System.err.println("entrada " + (indice + 1) + ": " + error.getMessage());
+					return;
+				}
+				String nombre = String.format(Locale.ROOT, "%09d.%s", indice + 1, formato.name().toLowerCase(Locale.ROOT).replace("raw", "pbm"));
+				if (archivo != null) {
+					archivo.putNextEntry(new ZipEntry(nombre));
+					archivo.write(datos);
+					archivo.closeEntry();
+				} else {
+					try (OutputStream out = new FileOutputStream(new File(salida, nombre))) {
+						out.write(datos);
+					}
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+		System.err.printf(Locale.ROOT, "%d entradas, %d errores, %.3f s, %.1f simbolos/s%n",
+			total, errores[0], segundos, (total - errores[0]) / Math.max(segundos, 1e-9));
+		if (verificador != null)
+			System.err.printf(Locale.ROOT, "%d simbolos verificados, %d fallidos%n", verificador.verificados(), verificador.fallidos());
+		return errores[0];
+	}
+
+	// codifica el texto y, si le toca, lo verifica
+	private QR codificar(String texto) {
+		QR qr = opciones.codificar(texto);
+		if (verificador != null && !verificador.verificar(qr, texto))
+			throw new IllegalStateException("el simbolo no paso la verificacion");
+		return qr;
+	}
+
+	// escribe el simbolo en el formato pedido
+	private byte[] renderizar(QR qr) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			switch (formato) {
+				case PNG:
+					escritoresPNG.escribir(qr, escala, borde, bytes);
+					break;
+				case SVG:
+					Writer w = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+					EscritorVectorial.escribirSVG(qr, borde, w);
+					w.flush();
+					break;
+				case RAW:
+					escribirPBM(qr, bytes);
+					break;
+				default:
+					throw new AssertionError();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	// PBM binario (P4): un pixel por modulo, 1 es negro, filas de 8 pixeles por byte empezando por el bit mas alto
+	private static void escribirPBM(QR qr, OutputStream out) throws IOException {
+		out.write(("P4\n" + qr.size + " " + qr.size + "\n").getBytes(StandardCharsets.US_ASCII));
+		byte[] fila = new byte[(qr.size + 7) / 8];
+		for (int y = 0; y < qr.size; y++) {
+			for (int x = 0; x < qr.size; x++) {
+				if (x % 8 == 0)
+					fila[x >>> 3] = 0;
+				fila[x >>> 3] |= qr.obtenerModulo(x, y) << (7 - (x & 7));
+			}
+			out.write(fila);
+		}
+	}
+
+	// devuelve la linea completa, o la columna pedida si la entrada es CSV
+	private String extraerTexto(String linea) {
+		if (columnaCsv < 0)
+			return linea;
+		StringBuilder campo = new StringBuilder();
+		int columna = 0;
+		boolean comillas = false;
+		for (int i = 0; i < linea.length(); i++) {
+			char c = linea.charAt(i);
+			if (comillas) {
+				if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+					campo.append('"');
+					i++;
+				} else if (c == '"') {
+					comillas = false;
+				} else {
+					campo.append(c);
+				}
+			} else if (c == '"') {
+				comillas = true;
+			} else if (c == ',') {
+				if (columna == columnaCsv)
+					return campo.toString();
+				columna++;
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		if (columna == columnaCsv)
+			return campo.toString();
+		throw new IllegalArgumentException("la linea no tiene la columna " + columnaCsv);
+	}
+
+	private static int entero(String op, String valor) {
+		try {
+			return Integer.parseInt(valor);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("valor invalido para " + op + ": " + valor);
+		}
+	}
+
+}
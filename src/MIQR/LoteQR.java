@@ -0,0 +1,147 @@
+package MIQR;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+
+// Codifica muchas entradas en paralelo y entrega los resultados en el mismo orden de la entrada.
+// Nunca hay mas de maxEnVuelo simbolos pendientes, asi la memoria queda acotada sin importar el tamaño de la entrada:
+// cuando la ventana se llena, el hilo que llama espera al simbolo mas antiguo antes de leer la siguiente entrada.
+public final class LoteQR {
+
+	// Recibe cada resultado en el orden de la entrada, siempre desde el hilo que llamo a codificar.
+	// Si la entrada no pudo codificarse (por ejemplo "Datos muy largos"), qr es null y error trae la causa.
+	public interface ReceptorLote<T> {
+		void aceptar(long indice, T entrada, QR qr, RuntimeException error) throws IOException;
+	}
+
+	// Igual que ReceptorLote para tareas que producen cualquier resultado, ver procesar().
+	public interface ReceptorResultado<T, R> {
+		void aceptar(long indice, T entrada, R resultado, RuntimeException error) throws IOException;
+	}
+
+	private final OpcionesQR opciones;
+	private final ExecutorService ejecutor;
+	private final int maxEnVuelo;
+
+
+        // constructor que usa el pool fork-join comun y una ventana de 4 simbolos por hilo
+	public LoteQR(OpcionesQR opciones) {
+		this(opciones, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism() * 4);
+	}
+
+        // constructor con el ejecutor y la cantidad maxima de simbolos pendientes dados; el ejecutor no se cierra aqui
+	public LoteQR(OpcionesQR opciones, ExecutorService ejecutor, int maxEnVuelo) {
+		Objects.requireNonNull(opciones);
+		Objects.requireNonNull(ejecutor);
+		if (maxEnVuelo < 1)
+			throw new IllegalArgumentException("valor fuera de rango");
+		this.opciones = opciones;
+		this.ejecutor = ejecutor;
+		this.maxEnVuelo = maxEnVuelo;
+	}
+
+        // codifica cada texto con OpcionesQR.codificar(String), que lo segmenta de forma optima; devuelve el numero de entradas procesadas
+	public long codificar(Iterator<String> textos, ReceptorLote<String> receptor) throws IOException, InterruptedException {
+		Objects.requireNonNull(receptor);
+		return procesar(textos, opciones::codificar, receptor::aceptar);
+	}
+
+        // igual que el anterior, tomando los textos de un Iterable
+	public long codificar(Iterable<String> textos, ReceptorLote<String> receptor) throws IOException, InterruptedException {
+		return codificar(textos.iterator(), receptor);
+	}
+
+        // igual que el anterior, tomando los textos de un Stream, que se consume de forma perezosa
+	public long codificar(Stream<String> textos, ReceptorLote<String> receptor) throws IOException, InterruptedException {
+		return codificar(textos.iterator(), receptor);
+	}
+
+        // Codifica cada entrada con los segmentos que produce segmentador. Los errores de una entrada se entregan al receptor
+        // sin detener el lote; si el receptor lanza una excepcion, se cancelan los simbolos pendientes y se propaga.
+	public <T> long codificar(Iterator<T> entradas, Function<? super T, List<SementoQR>> segmentador, ReceptorLote<T> receptor)
+			throws IOException, InterruptedException {
+		Objects.requireNonNull(segmentador);
+		Objects.requireNonNull(receptor);
+		return procesar(entradas, entrada -> opciones.codificar(segmentador.apply(entrada)), receptor::aceptar);
+	}
+
+        // Aplica la tarea a cada entrada en el ejecutor, con la misma ventana y el mismo orden de entrega que codificar.
+        // Sirve para hacer en paralelo el trabajo posterior a la codificacion, como renderizar cada simbolo.
+	public <T, R> long procesar(Iterator<T> entradas, Function<? super T, ? extends R> tarea, ReceptorResultado<T, R> receptor)
+			throws IOException, InterruptedException {
+		Objects.requireNonNull(entradas);
+		Objects.requireNonNull(tarea);
+		Objects.requireNonNull(receptor);
+
+		ArrayDeque<Pendiente<T, R>> pendientes = new ArrayDeque<>(maxEnVuelo);
+		long indice = 0;
+		boolean completo = false;
+		try {
+			while (entradas.hasNext()) {
+				if (pendientes.size() == maxEnVuelo)
+					entregar(pendientes.poll(), receptor);
+				T entrada = entradas.next();
+				Pendiente<T, R> p = new Pendiente<>(indice++, entrada);
+				p.futuro = ejecutor.submit(() -> p.ejecutar(tarea));
+				pendientes.add(p);
+			}
+			while (!pendientes.isEmpty())
+				entregar(pendientes.poll(), receptor);
+			completo = true;
+		} finally {
+			if (!completo) {
+				for (Pendiente<T, R> p : pendientes)
+					p.futuro.cancel(true);
+			}
+		}
+		return indice;
+	}
+
+	// espera el resultado pendiente mas antiguo y lo entrega al receptor
+	private static <T, R> void entregar(Pendiente<T, R> p, ReceptorResultado<T, R> receptor) throws IOException, InterruptedException {
+		try {
+			p.futuro.get();
+		} catch (ExecutionException e) {
+			// ejecutar() atrapa las RuntimeException, asi que aqui solo llegan los Error
+			Throwable causa = e.getCause();
+			if (causa instanceof Error)
+				throw (Error)causa;
+			throw new IllegalStateException(causa);
+		}
+		receptor.aceptar(p.indice, p.entrada, p.resultado, p.error);
+	}
+
+	// entrada enviada al ejecutor junto con su posicion y, al terminar, su resultado o el error que produjo
+	private static final class Pendiente<T, R> {
+		final long indice;
+		final T entrada;
+		Future<?> futuro;
+		R resultado;
+		RuntimeException error;
+
+		Pendiente(long indice, T entrada) {
+			this.indice = indice;
+			this.entrada = entrada;
+		}
+
+		// corre en el ejecutor; el error se guarda tal cual para no recibirlo envuelto por el ejecutor
+		void ejecutar(Function<? super T, ? extends R> tarea) {
+			try {
+				resultado = tarea.apply(entrada);
+			} catch (RuntimeException e) {
+				error = e;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package MIQR;
+
+import java.util.Arrays;
+
+
+// matriz cuadrada de modulos empaquetada en bits por filas.
+// El modulo (x, y) es el bit (x & 63) de la palabra y * palabrasPorFila + (x >>> 6); verdadero/1 es negro.
+// Los bits sobrantes al final de cada fila siempre se mantienen en cero.
+// Es publica para que el llamador pueda pasar su propia matriz a CodificadorQR y escribir o verificar las que devuelve;
+// solo las clases del paquete la modifican.
+public final class MatrizBits {
+
+	// dimension de la matriz en modulos
+	public final int size;
+
+	// numero de palabras de 64 bits que ocupa cada fila
+	public final int palabrasPorFila;
+
+	// palabras de todas las filas, una fila detras de otra
+	final long[] palabras;
+
+
+        // constructor
+        // crea una matriz toda en blanco
+	public MatrizBits(int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("valor fuera de rango");
+		this.size = size;
+		palabrasPorFila = (size + 63) >>> 6;
+		palabras = new long[palabrasPorFila * size];
+	}
+
+        // crea una copia independiente de otra matriz
+	public MatrizBits(MatrizBits otra) {
+		size = otra.size;
+		palabrasPorFila = otra.palabrasPorFila;
+		palabras = otra.palabras.clone();
+	}
+
+        //regresa el color del modulo, verdadero es negro
+	public boolean get(int x, int y) {
+		return ((palabras[y * palabrasPorFila + (x >>> 6)] >>> x) & 1) != 0;
+	}
+
+        //pinta el modulo dado de negro o blanco
+	void set(int x, int y, boolean negro) {
+		int i = y * palabrasPorFila + (x >>> 6);
+		if (negro)
+			palabras[i] |= 1L << x;
+		else
+			palabras[i] &= ~(1L << x);
+	}
+
+        //regresa la palabra i de la fila y; el bit b corresponde a la columna i * 64 + b
+	public long palabra(int y, int i) {
+		return palabras[y * palabrasPorFila + i];
+	}
+
+        //regresa la primera columna desde la dada (incluida) de la fila y con el color pedido, o size si no hay ninguna
+	int siguiente(int y, int desde, boolean negro) {
+		int base = y * palabrasPorFila;
+		for (int i = desde >>> 6; i < palabrasPorFila; i++) {
+			long w = negro ? palabras[base + i] : ~palabras[base + i];
+			if (i == desde >>> 6)
+				w &= -1L << desde;
+			if (w != 0)
+				return Math.min(size, (i << 6) + Long.numberOfTrailingZeros(w));
+		}
+		return size;
+	}
+
+        //copia las palabras de la fila y al arreglo destino a partir de la posicion dada
+	public void copiarFila(int y, long[] destino, int desde) {
+		System.arraycopy(palabras, y * palabrasPorFila, destino, desde, palabrasPorFila);
+	}
+
+        //sobreescribe esta matriz con el contenido de otra de la misma dimension
+	void copiarDe(MatrizBits otra) {
+		if (otra.size != size)
+			throw new IllegalArgumentException("Dimensiones distintas");
+		System.arraycopy(otra.palabras, 0, palabras, 0, palabras.length);
+	}
+
+        //invierte los modulos de esta matriz que estan en negro en la otra, palabra por palabra
+	void xor(MatrizBits otra) {
+		if (otra.size != size)
+			throw new IllegalArgumentException("Dimensiones distintas");
+		long[] p = palabras, q = otra.palabras;
+		for (int i = 0; i < p.length; i++)
+			p[i] ^= q[i];
+	}
+
+        //deja toda la matriz en blanco
+	void limpiar() {
+		Arrays.fill(palabras, 0);
+	}
+
+        //cuenta los modulos negros de toda la matriz
+	public int contarNegros() {
+		int total = 0;
+		for (long w : palabras)
+			total += Long.bitCount(w);
+		return total;
+	}
+
+}
@@ -0,0 +1,44 @@
+package MIQR;
+
+
+// Medicion de una ejecucion de una etapa, para el evento JFR y el registro de MetricasQR activo.
+// El evento se guarda como Object y solo EventosQR lo toca, para que esta clase no dependa de jdk.jfr.
+// iniciar() devuelve null si ninguno de los dos esta activo, asi que medir una etapa deshabilitada no crea objetos:
+//   Medicion m = Medicion.iniciar(MetricasQR.Etapa.CORRECCION);
+//   ...
+//   if (m != null) m.terminar(version, ecl, -1, bytes);
+final class Medicion {
+
+	private final MetricasQR.Etapa etapa;
+	private final Object evento;
+	private final MetricasQR registro;  // el activo al iniciar, aunque luego se cambie
+	private final long inicio;
+	private final long asignadosInicio;
+
+
+	private Medicion(MetricasQR.Etapa etapa, Object evento, MetricasQR registro) {
+		this.etapa = etapa;
+		this.evento = evento;
+		this.registro = registro;
+		inicio = registro != null ? System.nanoTime() : 0;
+		asignadosInicio = registro != null ? MetricasQR.asignadosHilo() : 0;
+	}
+
+	static Medicion iniciar(MetricasQR.Etapa etapa) {
+		boolean jfr = EventosQR.habilitado(etapa);
+		MetricasQR registro = MetricasQR.activo();
+		if (!jfr && registro == null)
+			return null;
+		return new Medicion(etapa, jfr ? EventosQR.iniciar(etapa) : null, registro);
+	}
+
+	void terminar(int version, QR.Ecc ecl, int mascara, long bytes) {
+		if (registro != null) {
+			long nanos = System.nanoTime() - inicio;
+			registro.registrar(etapa, nanos, bytes, MetricasQR.asignadosHilo() - asignadosInicio);
+		}
+		if (evento != null)
+			EventosQR.terminar(evento, version, ecl, mascara, bytes);
+	}
+
+}
@@ -0,0 +1,205 @@
+package MIQR;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+
+// Registro de metricas en el proceso: por cada etapa de la codificacion cuenta las ejecuciones, los bytes procesados,
+// el tiempo y los bytes de memoria reservados por el hilo, con un histograma de latencias en cubetas de potencias de 2
+// nanosegundos. Cada instancia tiene sus propios contadores; las etapas solo registran en la instancia activada con
+// activar(), y mientras no haya ninguna cada etapa solo lee una referencia. Se consulta con los metodos de cada etapa
+// o se vuelca como texto con volcar(). Las mismas etapas se publican como eventos de JDK Flight Recorder (ver EventosQR).
+public final class MetricasQR {
+
+	// etapas medidas
+	public enum Etapa {
+		// SementoQR.generarSegmentos y generarSegmentosOptimos; bytes: bits de los segmentos / 8
+		SEGMENTACION,
+		// eleccion de la version en QR.codificacionDeSegmentos; bytes: bits usados / 8
+		BUSQUEDA_VERSION,
+		// correccion Reed-Solomon e intercalado; bytes: palabras de codigo
+		CORRECCION,
+		// colocacion de las palabras en la matriz; bytes: palabras de codigo
+		COLOCACION,
+		// eleccion y aplicacion de la mascara; bytes: modulos del simbolo
+		MASCARA,
+		// toImage y EscritorPNG; bytes: pixeles de la imagen o bytes comprimidos del PNG
+		RENDERIZADO
+	}
+
+	// registro en el que registran las etapas, o null
+	private static volatile MetricasQR activo;
+
+	private final EnumMap<Etapa, Contadores> contadores = new EnumMap<>(Etapa.class);
+
+
+        // constructor, crea un registro con todos los contadores en cero
+	public MetricasQR() {
+		for (Etapa e : Etapa.values())
+			contadores.put(e, new Contadores());
+	}
+
+        // hace que las etapas registren en el registro dado, en lugar del que estuviera activo
+	public static void activar(MetricasQR registro) {
+		activo = Objects.requireNonNull(registro);
+	}
+
+        // deja de registrar; lo ya registrado se conserva en el registro
+	public static void desactivar() {
+		activo = null;
+	}
+
+        // registro activo, o null si no hay ninguno
+	public static MetricasQR activo() {
+		return activo;
+	}
+
+        // indica si se pueden medir los bytes reservados; si no, bytesAsignados siempre es 0
+	public static boolean midiendoAsignaciones() {
+		return Asignaciones.DISPONIBLE;
+	}
+
+        // pone todos los contadores en cero
+	public void reiniciar() {
+		for (Contadores c : contadores.values())
+			c.reiniciar();
+	}
+
+        // numero de ejecuciones registradas de la etapa
+	public long cuenta(Etapa etapa) {
+		return contadores.get(etapa).cuenta.sum();
+	}
+
+        // bytes procesados por la etapa, en el sentido descrito en cada Etapa
+	public long bytes(Etapa etapa) {
+		return contadores.get(etapa).bytes.sum();
+	}
+
+        // tiempo total de la etapa en nanosegundos
+	public long nanosTotales(Etapa etapa) {
+		return contadores.get(etapa).nanos.sum();
+	}
+
+        // bytes de memoria reservados por el hilo durante la etapa, en total
+	public long bytesAsignados(Etapa etapa) {
+		return contadores.get(etapa).asignados.sum();
+	}
+
+        // histograma de latencias: la posicion i cuenta las ejecuciones que tardaron de 2^i a 2^(i+1) - 1 nanosegundos
+	public long[] histograma(Etapa etapa) {
+		LongAdder[] cubetas = contadores.get(etapa).cubetas;
+		long[] result = new long[cubetas.length];
+		for (int i = 0; i < result.length; i++)
+			result[i] = cubetas[i].sum();
+		return result;
+	}
+
+        // cota superior en nanosegundos de la latencia del percentil dado (de 0 a 100), segun el histograma; 0 sin datos
+	public long percentil(Etapa etapa, double p) {
+		if (!(p >= 0 && p <= 100))
+			throw new IllegalArgumentException("valor fuera de rango");
+		long[] h = histograma(etapa);
+		long total = 0;
+		for (long c : h)
+			total += c;
+		long objetivo = (long)Math.ceil(total * p / 100);
+		long acumulado = 0;
+		for (int i = 0; i < h.length; i++) {
+			acumulado += h[i];
+			if (acumulado >= objetivo && acumulado > 0)
+				return i == 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+		}
+		return 0;
+	}
+
+        // escribe una linea por etapa con la cuenta, los bytes, el tiempo medio, los percentiles 50 y 99 en microsegundos
+        // y los bytes reservados por ejecucion
+	public void volcar(Appendable salida) throws IOException {
+		for (Etapa e : Etapa.values()) {
+			long n = cuenta(e);
+			salida.append(String.format(Locale.ROOT, "%-16s cuenta=%d bytes=%d media=%.3fus p50<=%.3fus p99<=%.3fus asignados=%.1fB%n",
+				e.name(), n, bytes(e), n == 0 ? 0.0 : nanosTotales(e) / 1e3 / n, percentil(e, 50) / 1e3, percentil(e, 99) / 1e3,
+				n == 0 ? 0.0 : (double)bytesAsignados(e) / n));
+		}
+	}
+
+	// bytes reservados hasta ahora por el hilo actual, o 0 si no se pueden medir
+	static long asignadosHilo() {
+		return Asignaciones.DISPONIBLE ? Asignaciones.delHilo() : 0;
+	}
+
+	// suma una ejecucion de la etapa
+	void registrar(Etapa etapa, long nanos, long bytes, long asignados) {
+		Contadores c = contadores.get(etapa);
+		c.cuenta.increment();
+		c.bytes.add(bytes);
+		c.nanos.add(nanos);
+		c.asignados.add(asignados);
+		c.cubetas[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))].increment();
+	}
+
+	// contadores de una etapa
+	private static final class Contadores {
+		final LongAdder cuenta = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder asignados = new LongAdder();
+		final LongAdder[] cubetas = new LongAdder[64];
+
+		Contadores() {
+			for (int i = 0; i < cubetas.length; i++)
+				cubetas[i] = new LongAdder();
+		}
+
+		void reiniciar() {
+			cuenta.reset();
+			bytes.reset();
+			nanos.reset();
+			asignados.reset();
+			for (LongAdder c : cubetas)
+				c.reset();
+		}
+	}
+
+	// Bytes reservados por hilo con com.sun.management.ThreadMXBean. Igual que jdk.jfr, el modulo puede faltar, asi
+	// que la clase que lo nombra solo se carga despues de comprobar que existe y que la JVM lo soporta.
+	private static final class Asignaciones {
+		static final boolean DISPONIBLE = disponible();
+
+		private static boolean disponible() {
+			try {
+				Class.forName("com.sun.management.ThreadMXBean", false, MetricasQR.class.getClassLoader());
+				return Bean.iniciar();
+			} catch (ClassNotFoundException | LinkageError | SecurityException e) {
+				return false;
+			}
+		}
+
+		static long delHilo() {
+			return Bean.delHilo();
+		}
+
+		private static final class Bean {
+			private static com.sun.management.ThreadMXBean bean;
+
+			static boolean iniciar() {
+				java.lang.management.ThreadMXBean b = java.lang.management.ManagementFactory.getThreadMXBean();
+				if (!(b instanceof com.sun.management.ThreadMXBean))
+					return false;
+				bean = (com.sun.management.ThreadMXBean)b;
+				if (!bean.isThreadAllocatedMemorySupported())
+					return false;
+				bean.setThreadAllocatedMemoryEnabled(true);
+				return bean.isThreadAllocatedMemoryEnabled();
+			}
+
+			static long delHilo() {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+	}
+
+}
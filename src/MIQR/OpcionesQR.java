@@ -0,0 +1,95 @@
+package MIQR;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+
+// Opciones de codificacion de un simbolo, las mismas que recibe QR.codificacionDeSegmentos.
+// Es inmutable, asi que una misma instancia puede compartirse entre hilos y usarse como parte de una llave.
+public final class OpcionesQR {
+
+	// nivel de correccion minimo
+	public final QR.Ecc errorCorrectionLevel;
+
+	// rango de versiones permitido
+	public final int versionmin;
+	public final int versionMAX;
+
+	// mascara fija de 0 a 7, o -1 para elegirla automaticamente
+	public final int mask;
+
+	// si se sube el nivel de correccion cuando los datos caben en la misma version
+	public final boolean boostEcl;
+
+	// como se evaluan las mascaras cuando mask es -1
+	public final QR.BusquedaMascara busqueda;
+
+	// si desde QR.VERSION_CORRECCION_PARALELA los bloques de correccion se calculan en paralelo
+	public final boolean correccionParalela;
+
+
+        // constructor con las opciones por defecto: nivel LOW, versiones 1 a 40, mascara automatica y boostEcl
+	public OpcionesQR() {
+		this(QR.Ecc.LOW, 1, 40, -1, true, QR.BusquedaMascara.SECUENCIAL);
+	}
+
+        // constructor sin correccion en paralelo
+	public OpcionesQR(QR.Ecc ecl, int versionmin, int versionMAX, int mask, boolean boostEcl, QR.BusquedaMascara busqueda) {
+		this(ecl, versionmin, versionMAX, mask, boostEcl, busqueda, false);
+	}
+
+        // constructor con todas las opciones
+	public OpcionesQR(QR.Ecc ecl, int versionmin, int versionMAX, int mask, boolean boostEcl, QR.BusquedaMascara busqueda, boolean correccionParalela) {
+		Objects.requireNonNull(ecl);
+		Objects.requireNonNull(busqueda);
+		if (!(1 <= versionmin && versionmin <= versionMAX && versionMAX <= 40) || mask < -1 || mask > 7)
+			throw new IllegalArgumentException("Valor invalido");
+		errorCorrectionLevel = ecl;
+		this.versionmin = versionmin;
+		this.versionMAX = versionMAX;
+		this.mask = mask;
+		this.boostEcl = boostEcl;
+		this.busqueda = busqueda;
+		this.correccionParalela = correccionParalela;
+	}
+
+        // codifica los segmentos dados con estas opciones
+	public QR codificar(List<SementoQR> segs) {
+		return QR.codificacionDeSegmentos(segs, errorCorrectionLevel, versionmin, versionMAX, mask, boostEcl, busqueda, correccionParalela);
+	}
+
+        // segmenta el texto con SementoQR.generarSegmentosOptimos para la menor version posible y lo codifica con estas opciones
+	public QR codificar(String texto) {
+		return codificar(SementoQR.generarSegmentosOptimos(texto, errorCorrectionLevel, versionmin, versionMAX));
+	}
+
+        // devuelve el nivel de correccion de su letra (L, M, Q o H, sin importar mayusculas)
+	static QR.Ecc leerNivel(String letra) {
+		switch (letra.toUpperCase(Locale.ROOT)) {
+			case "L":  return QR.Ecc.LOW;
+			case "M":  return QR.Ecc.MEDIUM;
+			case "Q":  return QR.Ecc.QUARTILE;
+			case "H":  return QR.Ecc.HIGH;
+			default:  throw new IllegalArgumentException("Nivel de correccion desconocido: " + letra);
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof OpcionesQR))
+			return false;
+		OpcionesQR otra = (OpcionesQR)o;
+		return errorCorrectionLevel == otra.errorCorrectionLevel && versionmin == otra.versionmin
+			&& versionMAX == otra.versionMAX && mask == otra.mask && boostEcl == otra.boostEcl && busqueda == otra.busqueda
+			&& correccionParalela == otra.correccionParalela;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(errorCorrectionLevel, versionmin, versionMAX, mask, boostEcl, busqueda, correccionParalela);
+	}
+
+}
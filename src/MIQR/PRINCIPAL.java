@@ -24,7 +24,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -116,26 +115,28 @@ public class PRINCIPAL extends javax.swing.JFrame {
             textoQR.setText("");
             return;
         }
-        if (textoQR.getText().length() > 10) {
-            JOptionPane.showMessageDialog(rootPane, "No se permiten cadenas de longitud superior a 10");
-            textoQR.setText("");
+        try {
+            segs = SementoQR.generarSegmentosOptimos(textoQR.getText(), QR.Ecc.HIGH, 1, 40);
+            qr = QR.codificacionDeSegmentos(segs, QR.Ecc.HIGH, 1, 40, 0, false);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(rootPane, "El texto no cabe en un codigo QR");
             return;
         }
-        segs = Arrays.asList(
-                SementoQR.generarAlfanumerico(textoQR.getText()));
-        qr = QR.codificacionDeSegmentos(segs, QR.Ecc.HIGH, 1, 1, 0, false);
 
-        // writePng(qr.toImage(10, 3), "QR.png");
+        // writePng(qr, "QR.png");
         
         Graphics2D g2D;
         g2D = (Graphics2D) panelCanvas.getGraphics();
         g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2D.clearRect(0, 0, panelCanvas.getWidth(), panelCanvas.getHeight());
         String fileName = "QR.png";
         Image img = getToolkit().getImage(fileName);
         AffineTransform aTran = new AffineTransform();
         aTran.translate(50.0f, 20.0f);
         g2D.transform(aTran);
-        g2D.drawImage(qr.toImage(10, 3), new AffineTransform(), this);
+        // hasta 10 pixeles por modulo, reduciendo la escala para que las versiones grandes quepan en el panel
+        int escala = Math.max(1, Math.min(10, Math.min(panelCanvas.getWidth() - 50, panelCanvas.getHeight() - 20) / (qr.size + 6)));
+        g2D.drawImage(qr.toImage(escala, 3), new AffineTransform(), this);
         //panelCanvas.repaint();
 
     }//GEN-LAST:event_botonGENERARQRActionPerformed
@@ -176,8 +177,11 @@ public class PRINCIPAL extends javax.swing.JFrame {
     }
 
     // Helper function to reduce code duplication.
-    private static void writePng(BufferedImage img, String filepath) throws IOException {
-        ImageIO.write(img, "png", new File(filepath));
+    private static void writePng(QR qr, String filepath) throws IOException {
+        try (EscritorPNG png = new EscritorPNG();
+                FileOutputStream out = new FileOutputStream(filepath)) {
+            png.escribir(qr, 10, 3, out);
+        }
     }
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
@@ -0,0 +1,247 @@
+package MIQR;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+
+// Plantilla para etiquetas en serie que solo difieren en un sufijo de largo fijo, como HTTPS://X.CO/ITEM/000001.
+// El prefijo se segmenta y codifica una sola vez con la version, el nivel y la posicion del sufijo ya fijos; por cada
+// etiqueta solo se escriben los bits del sufijo. Como Reed-Solomon es lineal, la correccion de un bloque es la del
+// bloque con el sufijo en cero XOR la de solo los bytes del sufijo, asi que la parte constante se guarda y por etiqueta
+// solo se calcula la de los bloques que el sufijo toca. Con mascara fija la matriz base ya esta enmascarada y cada
+// etiqueta solo invierte los modulos de las palabras que cambian; con mascara automatica se busca en cada etiqueta.
+// Guarda su espacio de trabajo, asi que no es seguro compartir una instancia entre hilos; se usa una por hilo.
+// Cada etiqueta se escribe con las sobrecargas para MatrizBits de EscritorPNG, EscritorVectorial y QR.toImage, y se
+// comprueba con las de VerificadorQR. La version de la plantilla es la de la dimension de la matriz, y su nivel y la
+// mascara de la etiqueta van en los bits de formato, que el verificador lee y comprueba.
+public final class PlantillaEtiqueta {
+
+	// como se codifica el sufijo y cuantos caracteres (bytes en modo byte) tiene siempre
+	private final SementoQR.Mode modo;
+	private final int largo;
+
+	private final int version;
+	private final QR.Ecc nivel;
+	private final int mascaraFija;  // -1 si se busca en cada etiqueta
+	private final TablasVersion tablas;
+	private final DistribucionBloques distribucion;
+
+	// datos con el sufijo en cero, y el rango [primerByte, finBytes) que el sufijo toca empezando en el bit desplazamiento
+	private final byte[] datosBase;
+	private final int primerByte;
+	private final int finBytes;
+	private final int desplazamiento;
+
+	// bloques que el sufijo toca y su correccion con el sufijo en cero, largoCorreccion bytes por bloque
+	private final int primerBloque;
+	private final int ultimoBloque;
+	private final byte[] correccionBase;
+
+	// patrones de funcion y palabras constantes (mas el formato y la mascara si es fija); las que cambian estan en blanco
+	private final MatrizBits base;
+
+	// espacio de trabajo
+	private final byte[] variable;
+	private final BitBuffer bb;
+	private final byte[] bloque;
+	private final byte[] residuo;
+	private final MatrizBits matriz;
+	private PuntajePenalidad puntaje;
+	private int mascara = -1;
+
+
+        // Constructor. Elige la menor version de las opciones en la que cabe el prefijo mas un sufijo del modo y largo dados;
+        // el modo puede ser NUMERIC, ALPHANUMERIC o BYTE (sufijo en UTF-8). Si boostEcl esta activo se sube el nivel
+        // como en QR.codificacionDeSegmentos. Lanza IllegalArgumentException si no cabe.
+	public PlantillaEtiqueta(String prefijo, SementoQR.Mode modoSufijo, int largoSufijo, OpcionesQR opciones) {
+		Objects.requireNonNull(prefijo);
+		Objects.requireNonNull(modoSufijo);
+		Objects.requireNonNull(opciones);
+		if (modoSufijo != SementoQR.Mode.NUMERIC && modoSufijo != SementoQR.Mode.ALPHANUMERIC && modoSufijo != SementoQR.Mode.BYTE)
+			throw new IllegalArgumentException("Modo no soportado: " + modoSufijo);
+		if (largoSufijo < 1)
+			throw new IllegalArgumentException("valor fuera de rango");
+		modo = modoSufijo;
+		largo = largoSufijo;
+
+		// un sufijo de ceros tiene todos sus bits de datos en cero en los tres modos
+		char[] ceros = new char[largoSufijo];
+		Arrays.fill(ceros, '0');
+		SementoQR sufijoCero = modoSufijo == SementoQR.Mode.BYTE ? SementoQR.generarBytes(new byte[largoSufijo])
+			: modoSufijo == SementoQR.Mode.NUMERIC ? SementoQR.generarNumerico(new String(ceros))
+			: SementoQR.generarAlfanumerico(new String(ceros));
+
+		// el prefijo se segmenta para cada clase de versiones hasta que el total cabe
+		List<SementoQR> segs = null;
+		int ver = -1;
+		int[] inicio = QR.INICIO_CLASE_VERSION;
+		for (int c = 0; c + 1 < inicio.length && ver == -1; c++) {
+			int lo = Math.max(opciones.versionmin, inicio[c]);
+			int hi = Math.min(opciones.versionMAX, inicio[c + 1] - 1);
+			if (lo > hi)
+				continue;
+			segs = new ArrayList<>(SementoQR.generarSegmentosOptimos(prefijo, lo));
+			segs.add(sufijoCero);
+			ver = QR.versionMinima(segs, opciones.errorCorrectionLevel, lo, hi);
+		}
+		if (ver == -1)
+			throw new IllegalArgumentException("Datos muy largos");
+		version = ver;
+		nivel = opciones.boostEcl ? QR.nivelMaximo(segs, opciones.errorCorrectionLevel, ver) : opciones.errorCorrectionLevel;
+		mascaraFija = opciones.mask;
+		tablas = TablasVersion.obtener(ver);
+		distribucion = DistribucionBloques.obtener(ver, nivel);
+		DistribucionBloques d = distribucion;
+
+		BitBuffer datos = new BitBuffer(new byte[d.totalDatos]);
+		QR.escribirDatos(segs, ver, d.totalDatos * 8, datos);
+		datosBase = datos.arreglo();
+		int inicioSufijo = SementoQR.obtenerBitsTotales(segs, ver) - sufijoCero.bitLength;
+		primerByte = inicioSufijo >>> 3;
+		finBytes = (inicioSufijo + sufijoCero.bitLength + 7) >>> 3;
+		desplazamiento = inicioSufijo & 7;
+
+		// correccion con el sufijo en cero, y la de los bloques tocados se guarda aparte
+		byte[] codigo = new byte[d.totalPalabras];
+		d.codificar(datosBase, codigo, new byte[d.largoCorreccion]);
+		primerBloque = d.bloqueDe(primerByte);
+		ultimoBloque = d.bloqueDe(finBytes - 1);
+		int ec = d.largoCorreccion;
+		correccionBase = new byte[(ultimoBloque - primerBloque + 1) * ec];
+		for (int j = primerBloque; j <= ultimoBloque; j++) {
+			for (int e = 0; e < ec; e++) {
+				int pos = d.posicionCorreccion(j, e);
+				correccionBase[(j - primerBloque) * ec + e] = codigo[pos];
+				codigo[pos] = 0;
+			}
+		}
+		for (int k = primerByte; k < finBytes; k++)
+			codigo[d.posicionDato(k)] = 0;
+
+		base = new MatrizBits(tablas.plantilla);
+		tablas.colocarPalabras(codigo, base);
+		if (mascaraFija != -1) {
+			QR.dibujarFormatoBits(base, nivel, mascaraFija);
+			base.xor(tablas.mascaras[mascaraFija]);
+		}
+
+		variable = new byte[finBytes - primerByte];
+		bb = new BitBuffer(variable);
+		bloque = new byte[d.datosCorto + 1];
+		residuo = new byte[ec];
+		matriz = new MatrizBits(base.size);
+	}
+
+        // Codifica la etiqueta con el sufijo dado en la matriz propia de la plantilla y la devuelve, ya con el formato y la
+        // mascara, lista para escribirse o verificarse. La matriz se reutiliza, asi que solo es valida hasta la siguiente llamada.
+	public MatrizBits codificar(String sufijo) {
+		codificarEn(sufijo, matriz);
+		return matriz;
+	}
+
+        // Codifica la etiqueta con el sufijo dado en la matriz del llamador, que debe tener la dimension de la version.
+	public void codificar(String sufijo, MatrizBits destino) {
+		Objects.requireNonNull(destino);
+		if (destino.size != base.size)
+			throw new IllegalArgumentException("Dimensiones distintas");
+		codificarEn(sufijo, destino);
+	}
+
+        // version de todas las etiquetas de la plantilla
+	public int version() {
+		return version;
+	}
+
+        // nivel de correccion de todas las etiquetas, que puede ser mayor al pedido si boostEcl esta activo
+	public QR.Ecc nivel() {
+		return nivel;
+	}
+
+        // mascara de la ultima etiqueta codificada
+	public int mascara() {
+		return mascara;
+	}
+
+	private void codificarEn(String sufijo, MatrizBits destino) {
+		Objects.requireNonNull(sufijo);
+		// bits del sufijo alineados como en los datos, en los bytes [primerByte, finBytes)
+		bb.reset(variable);
+		bb.apilarBits(0, desplazamiento);
+		apilarSufijo(sufijo);
+		bb.apilarBits(0, (8 - bb.bitLength() % 8) % 8);
+
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.CORRECCION);
+		DistribucionBloques d = distribucion;
+		destino.copiarDe(base);
+		for (int k = primerByte; k < finBytes; k++)
+			tablas.invertirPalabra(d.posicionDato(k), (datosBase[k] | variable[k - primerByte]) & 0xFF, destino);
+
+		// correccion de cada bloque tocado: la guardada XOR la de sus bytes del sufijo seguidos de ceros hasta el final
+		// del bloque; los ceros anteriores al sufijo no cambian el residuo, asi que la division empieza en el sufijo
+		int ec = d.largoCorreccion;
+		for (int j = primerBloque; j <= ultimoBloque; j++) {
+			int inicio = d.inicioDatos(j), fin = inicio + d.largoDatos(j);
+			int desde = Math.max(inicio, primerByte), hasta = Math.min(fin, finBytes);
+			System.arraycopy(variable, desde - primerByte, bloque, 0, hasta - desde);
+			Arrays.fill(bloque, hasta - desde, fin - desde, (byte)0);
+			d.rs.calcularResiduo(bloque, 0, fin - desde, residuo, 0);
+			for (int e = 0; e < ec; e++)
+				tablas.invertirPalabra(d.posicionCorreccion(j, e), (residuo[e] ^ correccionBase[(j - primerBloque) * ec + e]) & 0xFF, destino);
+		}
+		if (m != null)
+			m.terminar(version, nivel, mascaraFija, finBytes - primerByte);
+
+		int mask = mascaraFija;
+		if (mask == -1) {
+			m = Medicion.iniciar(MetricasQR.Etapa.MASCARA);
+			if (puntaje == null)
+				puntaje = new PuntajePenalidad(destino.size);
+			mask = QR.elegirMascaraSecuencial(destino, tablas, nivel, puntaje);
+			QR.dibujarFormatoBits(destino, nivel, mask);
+			destino.xor(tablas.mascaras[mask]);
+			if (m != null)
+				m.terminar(version, nivel, mask, destino.size * destino.size);
+		}
+		mascara = mask;
+	}
+
+	// apila los bits de datos del sufijo en el modo de la plantilla, validando su largo y sus caracteres
+	private void apilarSufijo(String sufijo) {
+		if (modo == SementoQR.Mode.BYTE) {
+			byte[] b = sufijo.getBytes(StandardCharsets.UTF_8);
+			if (b.length != largo)
+				throw new IllegalArgumentException("El sufijo debe tener " + largo + " bytes");
+			bb.apilarBytes(b, 0, largo);
+			return;
+		}
+		if (sufijo.length() != largo)
+			throw new IllegalArgumentException("El sufijo debe tener " + largo + " caracteres");
+		if (modo == SementoQR.Mode.NUMERIC) {
+			for (int i = 0; i < largo; ) {  // grupos de hasta 3 digitos
+				int len = Math.min(largo - i, 3), valor = 0;
+				for (int fin = i + len; i < fin; i++) {
+					int c = sufijo.charAt(i) - '0';
+					if (c < 0 || c > 9)
+						throw new IllegalArgumentException("String contains non-numeric characters");
+					valor = valor * 10 + c;
+				}
+				bb.apilarBits(valor, len * 3 + 1);
+			}
+		} else {
+			for (int i = 0; i < largo; i += 2) {  // pares, y un caracter suelto al final
+				int a = SementoQR.indiceAlfanumerico(sufijo.charAt(i));
+				int b = i + 1 < largo ? SementoQR.indiceAlfanumerico(sufijo.charAt(i + 1)) : 0;
+				if ((a | b) < 0)
+					throw new IllegalArgumentException("String contains unencodable characters in alphanumeric mode");
+				if (i + 1 < largo)
+					bb.apilarBits(a * 45 + b, 11);
+				else
+					bb.apilarBits(a, 6);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+package MIQR;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+// Pool de instancias de EscritorPNG compartido entre hilos, para reutilizar su Deflater sin atarlo a un hilo.
+// Con un ThreadLocal el Deflater de un hilo que termina no se libera hasta la finalizacion; aqui cada escritor se toma
+// solo mientras se escribe un simbolo y se devuelve, y close() libera los que quedan. Guarda a lo sumo maxLibres
+// escritores sin usar; los que sobran al devolverlos se cierran en el momento.
+final class PoolEscritoresPNG implements Closeable {
+
+	private final ArrayBlockingQueue<EscritorPNG> libres;
+	private volatile boolean cerrado;
+
+
+	// constructor; maxLibres suele ser el numero de hilos que escriben
+	PoolEscritoresPNG(int maxLibres) {
+		libres = new ArrayBlockingQueue<>(maxLibres);
+	}
+
+	// escribe el simbolo con un escritor del pool, como EscritorPNG.escribir
+	void escribir(QR qr, int scale, int border, OutputStream salida) throws IOException {
+		if (cerrado)
+			throw new IllegalStateException("El pool esta cerrado");
+		EscritorPNG escritor = libres.poll();
+		if (escritor == null)
+			escritor = new EscritorPNG();
+		try {
+			escritor.escribir(qr, scale, border, salida);
+		} finally {
+			devolver(escritor);
+		}
+	}
+
+	// libera el Deflater de todos los escritores sin usar; los que estan en uso se liberan al devolverse
+	@Override
+	public void close() {
+		cerrado = true;
+		vaciar();
+	}
+
+	private void devolver(EscritorPNG escritor) {
+		if (!libres.offer(escritor)) {
+			escritor.close();
+			return;
+		}
+		// si se cerro mientras se escribia, close() pudo vaciar la cola antes de que el escritor volviera
+		if (cerrado)
+			vaciar();
+	}
+
+	private void vaciar() {
+		for (EscritorPNG e; (e = libres.poll()) != null; )
+			e.close();
+	}
+
+}
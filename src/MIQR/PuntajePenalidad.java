@@ -0,0 +1,176 @@
+package MIQR;
+
+
+
+// Calcula el puntaje de penalización de una matriz de modulos con las reglas N1 a N4, trabajando con palabras de 64 modulos.
+// Las reglas de columnas se evaluan sobre una copia transpuesta, asi todas las reglas recorren filas empaquetadas.
+// No es seguro compartir una instancia entre hilos porque la transpuesta se reutiliza entre llamadas.
+final class PuntajePenalidad {
+
+	// se usan para calcular(), y para obtener la mejor mascara para el algoritmo del masqueo.
+	static final int PENALTY_N1 = 3;
+	static final int PENALTY_N2 = 3;
+	static final int PENALTY_N3 = 40;
+	static final int PENALTY_N4 = 10;
+
+	// patrones parecidos al buscador 1:1:3:1:1 con cuatro modulos blancos a un lado, el bit j es el modulo x + j
+	private static final int PATRON_BUSCADOR_A = 0x5D0;  // 0,0,0,0,1,0,1,1,1,0,1
+	private static final int PATRON_BUSCADOR_B = 0x05D;  // 1,0,1,1,1,0,1,0,0,0,0
+
+	// copia transpuesta reutilizada para las reglas de columnas, y el bloque de 64 * 64 bits para construirla
+	private final MatrizBits transpuesta;
+	private final long[] bloque = new long[64];
+
+
+        // constructor para matrices de la dimension dada
+	PuntajePenalidad(int size) {
+		transpuesta = new MatrizBits(size);
+	}
+
+        // Devuelve el puntaje de penalizacion de la matriz, identico al de la evaluacion modulo a modulo.
+	int calcular(MatrizBits m) {
+		return calcular(m, Integer.MAX_VALUE);
+	}
+
+        // Igual que calcular(m), pero se detiene en cuanto la suma parcial supera el limite y devuelve esa suma parcial.
+        // Si el puntaje completo es menor o igual al limite el resultado es exacto. Las reglas van de la mas barata a la mas cara.
+	int calcular(MatrizBits m, int limite) {
+		if (m.size != transpuesta.size)
+			throw new IllegalArgumentException("Dimensiones distintas");
+		int result = puntajeBalance(m);
+		if (result > limite)
+			return result;
+		result += puntajeFilas(m);
+		if (result > limite)
+			return result;
+		result += puntajeBloques(m);
+		if (result > limite)
+			return result;
+		transponer(m, transpuesta, bloque);
+		result += puntajeFilas(transpuesta);  // columnas
+		return result;
+	}
+
+        // Modulos adyacentes del mismo color (N1) y patrones parecidos al buscador (N3) en cada fila
+	static int puntajeFilas(MatrizBits m) {
+		int size = m.size, ppf = m.palabrasPorFila;
+		long[] p = m.palabras;
+		int result = 0;
+		for (int y = 0, base = 0; y < size; y++, base += ppf) {
+			// N1: las transiciones de color marcan el inicio de cada corrida, se recorren con numberOfTrailingZeros
+			int inicio = 0;
+			for (int i = 0, c = 0; i < ppf; i++, c += 64) {
+				long actual = p[base + i];
+				long anterior = c == 0 ? actual << 1 : ventana(p, base, ppf, c - 1);
+				long cambios = (actual ^ anterior) & mascaraRango(c, 1, size - 1);
+				while (cambios != 0) {
+					int x = c + Long.numberOfTrailingZeros(cambios);
+					result += puntajeCorrida(x - inicio);
+					inicio = x;
+					cambios &= cambios - 1;
+				}
+			}
+			result += puntajeCorrida(size - inicio);
+
+			// N3: ventanas de 11 modulos comparadas contra los dos patrones, 64 posiciones de inicio a la vez
+			for (int c = 0; c <= size - 11; c += 64) {
+				long coincideA = -1L, coincideB = -1L;
+				for (int j = 0; j < 11; j++) {
+					long w = ventana(p, base, ppf, c + j);
+					coincideA &= ((PATRON_BUSCADOR_A >>> j) & 1) != 0 ? w : ~w;
+					coincideB &= ((PATRON_BUSCADOR_B >>> j) & 1) != 0 ? w : ~w;
+				}
+				result += Long.bitCount((coincideA | coincideB) & mascaraRango(c, 0, size - 11)) * PENALTY_N3;
+			}
+		}
+		return result;
+	}
+
+        // bloques de modulos de 2*2 teniendo el mismo color (N2)
+	static int puntajeBloques(MatrizBits m) {
+		int size = m.size, ppf = m.palabrasPorFila;
+		long[] p = m.palabras;
+		int bloques = 0;
+		for (int y = 0, base = 0; y < size - 1; y++, base += ppf) {
+			for (int i = 0, c = 0; i < ppf; i++, c += 64) {
+				long a = p[base + i];
+				long b = p[base + ppf + i];
+				long a1 = ventana(p, base, ppf, c + 1);
+				long b1 = ventana(p, base + ppf, ppf, c + 1);
+				long iguales = ~(a ^ a1) & ~(a ^ b) & ~(a ^ b1);
+				bloques += Long.bitCount(iguales & mascaraRango(c, 0, size - 2));
+			}
+		}
+		return bloques * PENALTY_N2;
+	}
+
+        // Balance de módulos en blanco y negro (N4)
+	static int puntajeBalance(MatrizBits m) {
+		int black = m.contarNegros();
+		int total = m.size * m.size;
+		int result = 0;
+		// Hallar el k más pequeño tal que (45-5k)% <= oscuro / total <= (55 + 5k)%
+		for (int k = 0; black*20 < (9-k)*total || black*20 > (11+k)*total; k++)
+			result += PENALTY_N4;
+		return result;
+	}
+
+        // penalizacion de una corrida de modulos del mismo color: 3 por llegar a 5 y 1 por cada modulo extra
+	private static int puntajeCorrida(int largo) {
+		return largo >= 5 ? PENALTY_N1 + largo - 5 : 0;
+	}
+
+        // regresa los 64 modulos de la fila que empiezan en la columna desde; lo que cae fuera de la fila vale 0
+	static long ventana(long[] p, int base, int ppf, int desde) {
+		int i = desde >>> 6, s = desde & 63;
+		long bajo = i < ppf ? p[base + i] : 0;
+		if (s == 0)
+			return bajo;
+		long alto = i + 1 < ppf ? p[base + i + 1] : 0;
+		return (bajo >>> s) | (alto << (64 - s));
+	}
+
+        // mascara de las posiciones c + b (b de 0 a 63) que caen en el rango [desde, hasta]
+	private static long mascaraRango(int c, int desde, int hasta) {
+		int lo = desde - c, hi = hasta - c;
+		if (hi < 0 || lo > 63)
+			return 0;
+		long mascara = hi >= 63 ? -1L : (1L << (hi + 1)) - 1;
+		if (lo > 0)
+			mascara &= -1L << lo;
+		return mascara;
+	}
+
+        // escribe en destino la transpuesta de origen, por bloques de 64 * 64 modulos
+        // usando el arreglo de 64 palabras dado como espacio de trabajo
+	static void transponer(MatrizBits origen, MatrizBits destino, long[] bloque) {
+		int size = origen.size, ppf = origen.palabrasPorFila;
+		for (int bi = 0; bi < ppf; bi++) {
+			for (int bj = 0; bj < ppf; bj++) {
+				for (int k = 0; k < 64; k++) {
+					int y = bi * 64 + k;
+					bloque[k] = y < size ? origen.palabras[y * ppf + bj] : 0;
+				}
+				transponer64(bloque);
+				for (int k = 0; k < 64; k++) {
+					int y = bj * 64 + k;
+					if (y < size)
+						destino.palabras[y * ppf + bi] = bloque[k];
+				}
+			}
+		}
+	}
+
+        // transpone en su lugar un bloque de 64 * 64 bits intercambiando sub-bloques de mitad en mitad
+	private static void transponer64(long[] a) {
+		long m = 0x00000000FFFFFFFFL;
+		for (int j = 32; j != 0; j >>= 1, m ^= m << j) {
+			for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+				long t = ((a[k] >>> j) ^ a[k | j]) & m;
+				a[k] ^= t << j;
+				a[k | j] ^= t;
+			}
+		}
+	}
+
+}
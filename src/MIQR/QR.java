@@ -2,9 +2,15 @@ package MIQR;
 
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 
 
 public final class QR {
@@ -23,8 +29,9 @@ public final class QR {
 	public final int mask;
 	
 	// variables para las grillas del qr
-	private boolean[][] modules;     // modulos del qr  falso pinta blanco verdadero negro
-	private boolean[][] isFunction;  // indica que modulos no deberian ser sugeridos para el masking
+	private MatrizBits modules;     // modulos del qr empaquetados en bits, 0 pinta blanco 1 negro
+	private final MatrizBits isFunction;  // indica que modulos no deberian ser sugeridos para el masking, compartido por la version y nunca se modifica
+	private final TablasVersion tablas;  // tablas compartidas de esta version
         
         
 	 // Representa el nivel de corrección de errores utilizado en un símbolo de código QR.
@@ -40,34 +47,78 @@ public final class QR {
 			formatBits = fb;
 		}
 	}
+	
+	// Indica como se evaluan las 8 mascaras candidatas cuando la mascara es automatica (-1). Solo afecta a la mascara;
+	// la correccion en paralelo se elige aparte con correccionParalela.
+	public enum BusquedaMascara {
+		// una mascara tras otra sobre la misma matriz
+		SECUENCIAL,
+		// cada mascara en su propia copia de la matriz, en el pool fork-join comun
+		PARALELA,
+		// paralela solo desde VERSION_BUSQUEDA_PARALELA, donde el costo de puntuar supera al de repartir el trabajo
+		AUTOMATICA;
+		
+		boolean esParalela(int version) {
+			return this == PARALELA || this == AUTOMATICA && version >= VERSION_BUSQUEDA_PARALELA;
+		}
+	}
+	
+	// version a partir de la cual BusquedaMascara.AUTOMATICA evalua las mascaras en paralelo
+	public static final int VERSION_BUSQUEDA_PARALELA = 20;
+	
+	// version a partir de la cual, si se pide correccionParalela, los bloques de correccion se calculan en paralelo;
+	// desde aqui hay de 19 a 81 bloques por simbolo
+	public static final int VERSION_CORRECCION_PARALELA = 30;
+	
         // constructor que codifica segmentos del qr
 	public static QR codificacionDeSegmentos(List<SementoQR> segs, Ecc ecl, int versionmin, int versionMAX, int mask, boolean boostEcl) {
+		return codificacionDeSegmentos(segs, ecl, versionmin, versionMAX, mask, boostEcl, BusquedaMascara.SECUENCIAL);
+	}
+	
+        // igual que el anterior, eligiendo como se evaluan las mascaras cuando mask es -1
+	public static QR codificacionDeSegmentos(List<SementoQR> segs, Ecc ecl, int versionmin, int versionMAX, int mask, boolean boostEcl, BusquedaMascara busqueda) {
+		return codificacionDeSegmentos(segs, ecl, versionmin, versionMAX, mask, boostEcl, busqueda, false);
+	}
+	
+        // igual que el anterior; con correccionParalela, desde VERSION_CORRECCION_PARALELA los bloques de correccion se
+        // calculan en el pool fork-join comun, sin importar como se busque la mascara
+	public static QR codificacionDeSegmentos(List<SementoQR> segs, Ecc ecl, int versionmin, int versionMAX, int mask, boolean boostEcl, BusquedaMascara busqueda, boolean correccionParalela) {
 		Objects.requireNonNull(segs);
 		Objects.requireNonNull(ecl);
+		Objects.requireNonNull(busqueda);
 		if (!(1 <= versionmin && versionmin <= versionMAX && versionMAX <= 40) || mask < -1 || mask > 7)
 			throw new IllegalArgumentException("Valor invalido");
 		
 		
-		int version, bitsUsados;
-		for (version = versionmin; ; version++) {
-			int capacidadbits = getNumDataCodewords(version, ecl) * 8;  // numero de datos por bits disponibles
-			bitsUsados = SementoQR.obtenerBitsTotales(segs, version);
-			if (bitsUsados != -1 && bitsUsados <= capacidadbits)
-				break;  
-			if (version >= versionMAX)  
-				throw new IllegalArgumentException("Datos muy largos");
-		}
-		if (bitsUsados == -1)
-			throw new AssertionError();
-				
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.BUSQUEDA_VERSION);
+		int version = versionMinima(segs, ecl, versionmin, versionMAX);
+		if (version == -1)
+			throw new IllegalArgumentException("Datos muy largos");
+		if (m != null)
+			m.terminar(version, ecl, -1, SementoQR.obtenerBitsTotales(segs, version) / 8);
+		if (boostEcl)
+			ecl = nivelMaximo(segs, ecl, version);
+		
+		int dataCapacityBits = CAPACIDAD_BITS[ecl.ordinal()][version];
+		BitBuffer bb = new BitBuffer(new byte[dataCapacityBits / 8]);  // del tamano exacto, asi no crece ni se copia al final
+		escribirDatos(segs, version, dataCapacityBits, bb);
+		
+		// crea simbolo qr
+		return new QR(version, ecl, bb.arreglo(), mask, busqueda, correccionParalela);
+	}
+	
+	// el nivel de correccion mas alto, desde el dado, con el que los segmentos siguen cabiendo en la version
+	static Ecc nivelMaximo(List<SementoQR> segs, Ecc ecl, int version) {
+		int bitsUsados = SementoQR.obtenerBitsTotales(segs, version);
 		for (Ecc newEcl : Ecc.values()) {
-			if (boostEcl && bitsUsados <= getNumDataCodewords(version, newEcl) * 8)
+			if (bitsUsados <= CAPACIDAD_BITS[newEcl.ordinal()][version])
 				ecl = newEcl;
 		}
-		
-		// Concatena todos los segmentos de de bloques de bits del codigo
-		int dataCapacityBits = getNumDataCodewords(version, ecl) * 8;
-		BitBuffer bb = new BitBuffer();
+		return ecl;
+	}
+	
+	// Concatena todos los segmentos de de bloques de bits del codigo, con terminador y relleno hasta la capacidad dada
+	static void escribirDatos(List<SementoQR> segs, int version, int dataCapacityBits, BitBuffer bb) {
 		for (SementoQR seg : segs) {
 			bb.apilarBits(seg.mode.modeBits, 4);
 			bb.apilarBits(seg.numChars, seg.mode.numCharCountBits(version));
@@ -82,16 +133,24 @@ public final class QR {
 			bb.apilarBits(padByte, 8);
 		if (bb.bitLength() % 8 != 0)
 			throw new AssertionError();
-		
-		// crea simbolo qr
-		return new QR(version, ecl, bb.obtenerBytes(), mask);
 	}
 
 	//constructor
         //Crea un nuevo símbolo de código QR con el número de versión especificado, el nivel de corrección de errores, la matriz de datos binarios y el número de máscara
 	public QR(int ver, Ecc ecl, byte[] dataCodewords, int mask) {
+		this(ver, ecl, dataCodewords, mask, BusquedaMascara.SECUENCIAL);
+	}
+	
+        //igual que el anterior, eligiendo como se evaluan las mascaras cuando mask es -1
+	public QR(int ver, Ecc ecl, byte[] dataCodewords, int mask, BusquedaMascara busqueda) {
+		this(ver, ecl, dataCodewords, mask, busqueda, false);
+	}
+	
+        //igual que el anterior; con correccionParalela, desde VERSION_CORRECCION_PARALELA los bloques de correccion se calculan en paralelo
+	public QR(int ver, Ecc ecl, byte[] dataCodewords, int mask, BusquedaMascara busqueda, boolean correccionParalela) {
 		
 		Objects.requireNonNull(ecl);
+		Objects.requireNonNull(busqueda);
 		if (ver < 1 || ver > 40 || mask < -1 || mask > 7)
 			throw new IllegalArgumentException("valor fuera de rango");
 		Objects.requireNonNull(dataCodewords);
@@ -100,51 +159,200 @@ public final class QR {
 		version = ver;
 		size = ver * 4 + 17;
 		errorCorrectionLevel = ecl;
-		modules = new boolean[size][size];  // Entirely white grid
-		isFunction = new boolean[size][size];
 		
-		//  dibuja las funciones del patron con todo el el contenido del codigo
-		dibujarFuncionPatrones();
-		byte[] codigo = agregarNivelCorreccion(dataCodewords);
+		//  copia las funciones del patron de la plantilla de la version y luego dibuja el contenido del codigo
+		tablas = TablasVersion.obtener(version);
+		modules = new MatrizBits(tablas.plantilla);
+		isFunction = tablas.funciones;
+		byte[] codigo = agregarNivelCorreccion(dataCodewords, correccionParalela && version >= VERSION_CORRECCION_PARALELA);
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.COLOCACION);
 		drawCodewords(codigo);
-		this.mask = manejarMascaraConstruccion(mask);
+		if (m != null)
+			m.terminar(version, ecl, -1, codigo.length);
+		m = Medicion.iniciar(MetricasQR.Etapa.MASCARA);
+		this.mask = manejarMascaraConstruccion(mask, busqueda);
+		if (m != null)
+			m.terminar(version, ecl, this.mask, size * size);
+	}
+
+        //Construye por adelantado las tablas de las versiones dadas, para que el primer simbolo de cada una no pague ese costo.
+	public static void precalentar(int... versiones) {
+		Objects.requireNonNull(versiones);
+		for (int ver : versiones)
+			TablasVersion.obtener(ver);
 	}
 
         //regresa la matriz de modulo en binario simbolizando el color que va a tener
 	public int obtenerModulo(int x, int y) {
 		if (0 <= x && x < size && 0 <= y && y < size)
-			return modules[y][x] ? 1 : 0;
+			return modules.get(x, y) ? 1 : 0;
 		else
 			return 0;  // borde blanco
 	}
 
+        //regresa la matriz de modulos del simbolo para las clases del paquete; no debe modificarse
+	MatrizBits matriz() {
+		return modules;
+	}
+
+        //regresa el numero de palabras de 64 bits que ocupa cada fila de modulos
+	public int palabrasPorFila() {
+		return modules.palabrasPorFila;
+	}
+
+        //regresa la palabra i de la fila y; el bit b (de menor a mayor peso) es el modulo de la columna i * 64 + b
+	public long obtenerPalabra(int y, int i) {
+		if (y < 0 || y >= size || i < 0 || i >= modules.palabrasPorFila)
+			throw new IndexOutOfBoundsException();
+		return modules.palabra(y, i);
+	}
+
+        //copia la fila y completa al arreglo destino, que debe tener al menos palabrasPorFila() posiciones
+	public void copiarFila(int y, long[] destino) {
+		if (y < 0 || y >= size)
+			throw new IndexOutOfBoundsException();
+		modules.copiarFila(y, destino, 0);
+	}
+
         //Devuelve la imagen del qr del buffer especificando la escala y el borde
 	public BufferedImage toImage(int scale, int border) {
+		return toImage(scale, border, BufferedImage.TYPE_INT_RGB);
+	}
+	
+        //Igual que el anterior eligiendo el tipo de imagen: TYPE_INT_RGB, TYPE_BYTE_GRAY o TYPE_BYTE_BINARY.
+        //TYPE_BYTE_BINARY guarda un bit por pixel, 1/32 de la memoria de TYPE_INT_RGB.
+        //Cada fila de modulos se escribe una vez directo en el arreglo del raster y se copia scale veces.
+	public BufferedImage toImage(int scale, int border, int tipoImagen) {
+		return toImage(modules, scale, border, tipoImagen, version, errorCorrectionLevel, mask);
+	}
+	
+        //Igual que el anterior para una matriz suelta, como las de CodificadorQR y PlantillaEtiqueta.
+	public static BufferedImage toImage(MatrizBits matriz, int scale, int border, int tipoImagen) {
+		Objects.requireNonNull(matriz);
+		return toImage(matriz, scale, border, tipoImagen, versionDeTamano(matriz.size), null, -1);
+	}
+	
+	// la version, el nivel y la mascara solo se usan en las metricas
+	private static BufferedImage toImage(MatrizBits matriz, int scale, int border, int tipoImagen, int version, Ecc ecl, int mask) {
 		if (scale <= 0 || border < 0)
 			throw new IllegalArgumentException("valor fuera de rango");
-		BufferedImage result = new BufferedImage((size + border * 2) * scale, (size + border * 2) * scale, BufferedImage.TYPE_INT_RGB);
-		for (int y = 0; y < result.getHeight(); y++) {
-			for (int x = 0; x < result.getWidth(); x++) {
-				int val = obtenerModulo(x / scale - border, y / scale - border);  // 0 o 1
-				result.setRGB(x, y, val == 1 ? 0x000000 : 0xFFFFFF);
+		if (tipoImagen != BufferedImage.TYPE_INT_RGB && tipoImagen != BufferedImage.TYPE_BYTE_GRAY && tipoImagen != BufferedImage.TYPE_BYTE_BINARY)
+			throw new IllegalArgumentException("Tipo de imagen no soportado");
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.RENDERIZADO);
+		int ancho = (matriz.size + border * 2) * scale;
+		BufferedImage result = new BufferedImage(ancho, ancho, tipoImagen);
+		DataBuffer buffer = result.getRaster().getDataBuffer();
+		if (tipoImagen == BufferedImage.TYPE_INT_RGB)
+			rasterizarInt(matriz, ((DataBufferInt)buffer).getData(), scale, border, ancho);
+		else if (tipoImagen == BufferedImage.TYPE_BYTE_GRAY)
+			rasterizarGris(matriz, ((DataBufferByte)buffer).getData(), scale, border, ancho);
+		else
+			rasterizarBinario(matriz, ((DataBufferByte)buffer).getData(), scale, border, ancho);
+		if (m != null)
+			m.terminar(version, ecl, mask, (long)ancho * ancho);
+		return result;
+	}
+	
+	// version cuya dimension es size, o -1 si ninguna la tiene
+	static int versionDeTamano(int size) {
+		int ver = (size - 17) / 4;
+		return ver >= 1 && ver <= 40 && ver * 4 + 17 == size ? ver : -1;
+	}
+	
+	// pinta pixeles TYPE_INT_RGB, 0x000000 negro y 0xFFFFFF blanco
+	private static void rasterizarInt(MatrizBits modules, int[] pixeles, int scale, int border, int ancho) {
+		int size = modules.size;
+		int bordePixeles = border * scale;
+		// el borde superior e inferior es blanco
+		Arrays.fill(pixeles, 0, bordePixeles * ancho, 0xFFFFFF);
+		Arrays.fill(pixeles, (ancho - bordePixeles) * ancho, pixeles.length, 0xFFFFFF);
+		
+		for (int y = 0; y < size; y++) {
+			int inicio = (bordePixeles + y * scale) * ancho;
+			int x = inicio + bordePixeles;
+			Arrays.fill(pixeles, inicio, x, 0xFFFFFF);
+			for (int i = 0; i < modules.palabrasPorFila; i++) {
+				long palabra = modules.palabra(y, i);
+				int fin = Math.min(64, size - i * 64);
+				for (int b = 0; b < fin; b++, x += scale)
+					Arrays.fill(pixeles, x, x + scale, ((palabra >>> b) & 1) != 0 ? 0x000000 : 0xFFFFFF);
+			}
+			Arrays.fill(pixeles, x, inicio + ancho, 0xFFFFFF);
+			for (int k = 1; k < scale; k++)
+				System.arraycopy(pixeles, inicio, pixeles, inicio + k * ancho, ancho);
+		}
+	}
+	
+	// pinta pixeles TYPE_BYTE_GRAY, 0 negro y 0xFF blanco
+	private static void rasterizarGris(MatrizBits modules, byte[] pixeles, int scale, int border, int ancho) {
+		int size = modules.size;
+		int bordePixeles = border * scale;
+		Arrays.fill(pixeles, 0, bordePixeles * ancho, (byte)0xFF);
+		Arrays.fill(pixeles, (ancho - bordePixeles) * ancho, pixeles.length, (byte)0xFF);
+		
+		for (int y = 0; y < size; y++) {
+			int inicio = (bordePixeles + y * scale) * ancho;
+			int x = inicio + bordePixeles;
+			Arrays.fill(pixeles, inicio, x, (byte)0xFF);
+			for (int i = 0; i < modules.palabrasPorFila; i++) {
+				long palabra = modules.palabra(y, i);
+				int fin = Math.min(64, size - i * 64);
+				for (int b = 0; b < fin; b++, x += scale)
+					Arrays.fill(pixeles, x, x + scale, ((palabra >>> b) & 1) != 0 ? 0 : (byte)0xFF);
+			}
+			Arrays.fill(pixeles, x, inicio + ancho, (byte)0xFF);
+			for (int k = 1; k < scale; k++)
+				System.arraycopy(pixeles, inicio, pixeles, inicio + k * ancho, ancho);
+		}
+	}
+	
+	// pinta pixeles TYPE_BYTE_BINARY, 8 por byte empezando por el bit mas alto; con la paleta por defecto 0 es negro y 1 blanco
+	private static void rasterizarBinario(MatrizBits modules, byte[] pixeles, int scale, int border, int ancho) {
+		int bytesPorFila = (ancho + 7) / 8;
+		int bordePixeles = border * scale;
+		Arrays.fill(pixeles, (byte)0xFF);  // todo blanco, luego se apagan los pixeles negros
+		
+		for (int y = 0; y < modules.size; y++) {
+			int inicio = (bordePixeles + y * scale) * bytesPorFila;
+			pintarFilaBinaria(modules, y, pixeles, inicio, scale, border);
+			for (int k = 1; k < scale; k++)
+				System.arraycopy(pixeles, inicio, pixeles, inicio + k * bytesPorFila, bytesPorFila);
+		}
+	}
+	
+	// apaga en destino (a partir de desde, 8 pixeles por byte, bit mas alto primero) los pixeles de los modulos negros
+	// de la fila y; los bytes de la fila deben venir en blanco (0xFF)
+	static void pintarFilaBinaria(MatrizBits modules, int y, byte[] destino, int desde, int scale, int border) {
+		int size = modules.size;
+		int x = border * scale;
+		for (int i = 0; i < modules.palabrasPorFila; i++) {
+			long palabra = modules.palabra(y, i);
+			int fin = Math.min(64, size - i * 64);
+			for (int b = 0; b < fin; b++, x += scale) {
+				if (((palabra >>> b) & 1) != 0) {
+					for (int px = x; px < x + scale; px++)
+						destino[desde + (px >>> 3)] &= ~(0x80 >>> (px & 7));
+				}
 			}
 		}
-		return result;
 	}
 		
 	// metodos para pintar el qr
+	// Los patrones de funcion solo dependen de la version, por eso se pintan con metodos estaticos sobre
+	// las matrices dadas: modulos recibe los colores y funciones marca los modulos que no llevan datos.
 	
-	private void dibujarFuncionPatrones() {
+	static void dibujarFuncionPatrones(MatrizBits modulos, MatrizBits funciones, int version) {
+		int size = modulos.size;
 		// Dibuja de horizontal a vertical patron de timing
 		for (int i = 0; i < size; i++) {
-			pintarModulos(6, i, i % 2 == 0);
-			pintarModulos(i, 6, i % 2 == 0);
+			pintarModulos(modulos, funciones, 6, i, i % 2 == 0);
+			pintarModulos(modulos, funciones, i, 6, i % 2 == 0);
 		}
 		
 		// Dibuja los 3 patrones de las esquinas()Draw 3 finder patterns (all corners except bottom right; overwrites some timing modules)
-		dibujarPatronBuscado(3, 3);
-		dibujarPatronBuscado(size - 4, 3);
-		dibujarPatronBuscado(3, size - 4);
+		dibujarPatronBuscado(modulos, funciones, 3, 3);
+		dibujarPatronBuscado(modulos, funciones, size - 4, 3);
+		dibujarPatronBuscado(modulos, funciones, 3, size - 4);
 		
 		// Dibuja los patrones de alineamiento
 		int[] alignPatPos = obtenerAlineacionPosicionesPatrones(version);
@@ -154,19 +362,24 @@ public final class QR {
 				if (i == 0 && j == 0 || i == 0 && j == numAlign - 1 || i == numAlign - 1 && j == 0)
 					continue;  
 				else
-					dibujarPatronAlineamiento(alignPatPos[i], alignPatPos[j]);
+					dibujarPatronAlineamiento(modulos, funciones, alignPatPos[i], alignPatPos[j]);
 			}
 		}
 		
-		// dibuja la configuracion de los datos
-		dibujarFormatoBits(0);  
-		dibujarVersion();
+		// reserva los modulos del formato, se pintan al elegir la mascara
+		pintarFormato(funciones, 0x7FFF);
+		dibujarVersion(modulos, funciones, version);
 	}
 	
 	// crea un dibujo copia en formato de bits con los errores de correcion basado en la mascara dada
-	private void dibujarFormatoBits(int mask) {
+	private void dibujarFormatoBits(MatrizBits destino, int mask) {
+		dibujarFormatoBits(destino, errorCorrectionLevel, mask);
+	}
+	
+	// igual que el anterior para un nivel de correccion dado
+	static void dibujarFormatoBits(MatrizBits destino, Ecc ecl, int mask) {
 		// calcula el error de correcion del codigo y los bits
-		int data = errorCorrectionLevel.formatBits << 3 | mask;  // errCorrLvl is uint2, mask is uint3
+		int data = ecl.formatBits << 3 | mask;  // errCorrLvl is uint2, mask is uint3
 		int rem = data;
 		for (int i = 0; i < 10; i++)
 			rem = (rem << 1) ^ ((rem >>> 9) * 0x537);
@@ -174,28 +387,33 @@ public final class QR {
 		data ^= 0x5412;  // uint15
 		if (data >>> 15 != 0)
 			throw new AssertionError();
-		
+		pintarFormato(destino, data);
+	}
+	
+	// pinta las dos copias de los 15 bits de formato y el modulo negro fijo en la matriz dada
+	private static void pintarFormato(MatrizBits destino, int data) {
+		int size = destino.size;
 		// dibuja la primera copia
 		for (int i = 0; i <= 5; i++)
-			pintarModulos(8, i, ((data >>> i) & 1) != 0);
-		pintarModulos(8, 7, ((data >>> 6) & 1) != 0);
-		pintarModulos(8, 8, ((data >>> 7) & 1) != 0);
-		pintarModulos(7, 8, ((data >>> 8) & 1) != 0);
+			destino.set(8, i, ((data >>> i) & 1) != 0);
+		destino.set(8, 7, ((data >>> 6) & 1) != 0);
+		destino.set(8, 8, ((data >>> 7) & 1) != 0);
+		destino.set(7, 8, ((data >>> 8) & 1) != 0);
 		for (int i = 9; i < 15; i++)
-			pintarModulos(14 - i, 8, ((data >>> i) & 1) != 0);
+			destino.set(14 - i, 8, ((data >>> i) & 1) != 0);
 		
 		// dibuja la segunda copia
 		for (int i = 0; i <= 7; i++)
-			pintarModulos(size - 1 - i, 8, ((data >>> i) & 1) != 0);
+			destino.set(size - 1 - i, 8, ((data >>> i) & 1) != 0);
 		for (int i = 8; i < 15; i++)
-			pintarModulos(8, size - 15 + i, ((data >>> i) & 1) != 0);
-		pintarModulos(8, size - 8, true);
+			destino.set(8, size - 15 + i, ((data >>> i) & 1) != 0);
+		destino.set(8, size - 8, true);
 	}
 	
 	
 	// Dibuja 2 copias de la version de los bits Draws two copies of the version bits (with its own error correction code),
-	// based on this object's version field (which only has an effect for 7 <= version <= 40).
-	private void dibujarVersion() {
+	// based on the given version (which only has an effect for 7 <= version <= 40).
+	private static void dibujarVersion(MatrizBits modulos, MatrizBits funciones, int version) {
 		if (version < 7)
 			return;
 		
@@ -210,236 +428,150 @@ public final class QR {
 		
 		for (int i = 0; i < 18; i++) {
 			boolean bit = ((data >>> i) & 1) != 0;
-			int a = size - 11 + i % 3, b = i / 3;
-			pintarModulos(a, b, bit);
-			pintarModulos(b, a, bit);
+			int a = modulos.size - 11 + i % 3, b = i / 3;
+			pintarModulos(modulos, funciones, a, b, bit);
+			pintarModulos(modulos, funciones, b, a, bit);
 		}
 	}
 	
 	
 	// dibuja bloques 9*9 del patron incluyendo el borde separador en un modulo cnetrado
-	private void dibujarPatronBuscado(int x, int y) {
+	private static void dibujarPatronBuscado(MatrizBits modulos, MatrizBits funciones, int x, int y) {
+		int size = modulos.size;
 		for (int i = -4; i <= 4; i++) {
 			for (int j = -4; j <= 4; j++) {
 				int dist = Math.max(Math.abs(i), Math.abs(j));  
 				int xx = x + j, yy = y + i;
 				if (0 <= xx && xx < size && 0 <= yy && yy < size)
-					pintarModulos(xx, yy, dist != 2 && dist != 4);
+					pintarModulos(modulos, funciones, xx, yy, dist != 2 && dist != 4);
 			}
 		}
 	}
 
 	// dibuja bloques de 5*5 de patron de alineamiento con modulos centrados
-	private void dibujarPatronAlineamiento(int x, int y) {
+	private static void dibujarPatronAlineamiento(MatrizBits modulos, MatrizBits funciones, int x, int y) {
 		for (int i = -2; i <= 2; i++) {
 			for (int j = -2; j <= 2; j++)
-				pintarModulos(x + j, y + i, Math.max(Math.abs(i), Math.abs(j)) != 1);
+				pintarModulos(modulos, funciones, x + j, y + i, Math.max(Math.abs(i), Math.abs(j)) != 1);
 		}
 	}
 
 	// pone los colores blanco y negro a los modulos
-	private void pintarModulos(int x, int y, boolean isBlack) {
-		modules[y][x] = isBlack;
-		isFunction[y][x] = true;
+	private static void pintarModulos(MatrizBits modulos, MatrizBits funciones, int x, int y, boolean isBlack) {
+		modulos.set(x, y, isBlack);
+		funciones.set(x, y, true);
 	}
 	
         //agrega el nivel de correccion al los datos del qr
-	private byte[] agregarNivelCorreccion(byte[] data) {
+	private byte[] agregarNivelCorreccion(byte[] data, boolean paralelo) {
 		if (data.length != getNumDataCodewords(version, errorCorrectionLevel))
 			throw new IllegalArgumentException();
-		
-		// calcula los parametros
-		int numeroBloques = NUM_ERROR_CORRECTION_BLOCKS[errorCorrectionLevel.ordinal()][version];
-		int blockEccLen = ECC_CODEWORDS_PER_BLOCK[errorCorrectionLevel.ordinal()][version];
-		int filaCodigos = obtenerNumeroFilasModuloDatos(version) / 8;
-		int numBloquesCorto = numeroBloques - filaCodigos % numeroBloques;
-		int shortBlockLen = filaCodigos / numeroBloques;
-		
-		// partir los datos en bloques y agregar el error de nivel de correcion para cada bloque
-		byte[][] bloquesdeBites = new byte[numeroBloques][];
-		ReedSolomonGenerator rs = new ReedSolomonGenerator(blockEccLen);
-		for (int i = 0, k = 0; i < numeroBloques; i++) {
-			byte[] dat = Arrays.copyOfRange(data, k, k + shortBlockLen - blockEccLen + (i < numBloquesCorto ? 0 : 1));
-			byte[] block = Arrays.copyOf(dat, shortBlockLen + 1);
-			k += dat.length;
-			byte[] ecc = rs.obtenerBitsRecordatorio(dat);
-			System.arraycopy(ecc, 0, block, block.length - blockEccLen, ecc.length);
-			bloquesdeBites[i] = block;
-		}
-		
-		// Interleave (not concatenate) the bytes from every block into a single sequence
-		byte[] result = new byte[filaCodigos];
-		for (int i = 0, k = 0; i < bloquesdeBites[0].length; i++) {
-			for (int j = 0; j < bloquesdeBites.length; j++) {
-				// salta padding byte en pequenios bloques de bits
-				if (i != shortBlockLen - blockEccLen || j >= numBloquesCorto) {
-					result[k] = bloquesdeBites[j][i];
-					k++;
-				}
-			}
-		}
+		byte[] result = new byte[obtenerNumeroFilasModuloDatos(version) / 8];
+		agregarNivelCorreccion(version, errorCorrectionLevel, data, result, paralelo ? null : new byte[largoCorreccion(version, errorCorrectionLevel)]);
 		return result;
 	}
 	
+        //Calcula la correccion de cada bloque directo desde data y escribe datos y correccion en su posicion intercalada de result,
+        //segun la distribucion de bloques de la version y nivel. residuo es espacio de trabajo de al menos largoCorreccion bytes;
+        //si es null los bloques se procesan en paralelo.
+	static void agregarNivelCorreccion(int version, Ecc errorCorrectionLevel, byte[] data, byte[] result, byte[] residuo) {
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.CORRECCION);
+		DistribucionBloques d = DistribucionBloques.obtener(version, errorCorrectionLevel);
+		if (residuo == null)
+			d.codificarParalelo(data, result);
+		else
+			d.codificar(data, result, residuo);
+		if (m != null)
+			m.terminar(version, errorCorrectionLevel, -1, d.totalPalabras);
+	}
+	
+        //bytes de correccion por bloque de la version y nivel dados
+	static int largoCorreccion(int version, Ecc ecl) {
+		return ECC_CODEWORDS_PER_BLOCK[ecl.ordinal()][version];
+	}
+	
+        //numero de bloques de correccion de la version y nivel dados
+	static int numeroBloques(int version, Ecc ecl) {
+		return NUM_ERROR_CORRECTION_BLOCKS[ecl.ordinal()][version];
+	}
+	
 	
-	// Dibuja la secuencia de 8 bits por palabra	
+	// Dibuja la secuencia de 8 bits por palabra siguiendo el orden de colocacion precalculado de la version
 	private void drawCodewords(byte[] data) {
 		Objects.requireNonNull(data);
 		if (data.length != obtenerNumeroFilasModuloDatos(version) / 8)
 			throw new IllegalArgumentException();
-		
-		int i = 0;  // indice de bits dentro de los datos
-		// Do the funny zigzag scan
-		for (int right = size - 1; right >= 1; right -= 2) {  // Index of right column in each column pair
-			if (right == 6)
-				right = 5;
-			for (int vert = 0; vert < size; vert++) {  // contador verticalVertical counter
-				for (int j = 0; j < 2; j++) {
-					int x = right - j;  //coordenada x actual Actual x coordinate
-					boolean upward = ((right + 1) & 2) == 0;
-					int y = upward ? size - 1 - vert : vert;  // coordenada de y actual
-					if (!isFunction[y][x] && i < data.length * 8) {
-						modules[y][x] = ((data[i >>> 3] >>> (7 - (i & 7))) & 1) != 0;
-						i++;
-					}
-					
-				}
-			}
-		}
-		if (i != data.length * 8)
-			throw new AssertionError();
+		tablas.colocarPalabras(data, modules);
 	}
 	
-	// aplicamos operacion XOR al patron de la mascara 
+	// aplicamos operacion XOR al patron de la mascara, ya precalculado sin los modulos de funcion
 	
-	private void aplicarXORmascara(int mask) {
+	private void aplicarXORmascara(MatrizBits destino, int mask) {
 		if (mask < 0 || mask > 7)
 			throw new IllegalArgumentException("Mascara fuera del rango");
-		for (int y = 0; y < size; y++) {
-			for (int x = 0; x < size; x++) {
-				boolean invert;
-				switch (mask) {
-					case 0:  invert = (x + y) % 2 == 0;                    break;
-					case 1:  invert = y % 2 == 0;                          break;
-					case 2:  invert = x % 3 == 0;                          break;
-					case 3:  invert = (x + y) % 3 == 0;                    break;
-					case 4:  invert = (x / 3 + y / 2) % 2 == 0;            break;
-					case 5:  invert = x * y % 2 + x * y % 3 == 0;          break;
-					case 6:  invert = (x * y % 2 + x * y % 3) % 2 == 0;    break;
-					case 7:  invert = ((x + y) % 2 + x * y % 3) % 2 == 0;  break;
-					default:  throw new AssertionError();
-				}
-				modules[y][x] ^= invert & !isFunction[y][x];
-			}
-		}
+		destino.xor(tablas.mascaras[mask]);
 	}
 	
 	
 	// Una función auxiliar desordenada para los constructores. Este código QR debe estar en un estado no enmascarado cuando
 	// Método. El argumento dado es la máscara solicitada, que es -1 para auto o 0 a 7 para fixed.
-	private int manejarMascaraConstruccion(int mask) {
+	private int manejarMascaraConstruccion(int mask, BusquedaMascara busqueda) {
 		if (mask == -1) {  // Automatically choose best mask
-			int minPenalty = Integer.MAX_VALUE;
-			for (int i = 0; i < 8; i++) {
-				dibujarFormatoBits(i);
-				aplicarXORmascara(i);
-				int penalty = obtenerCostoPenalidad();
-				if (penalty < minPenalty) {
-					mask = i;
-					minPenalty = penalty;
-				}
-				aplicarXORmascara(i);  // Undoes the mask due to XOR
-			}
+			if (busqueda.esParalela(version))
+				mask = elegirMascaraParalela();
+			else
+				mask = elegirMascaraSecuencial();
 		}
 		if (mask < 0 || mask > 7)
 			throw new AssertionError();
-		dibujarFormatoBits(mask);  // sobreescribe el formato viejo de los bits
-		aplicarXORmascara(mask);  // aplica la seleccion final de mascara
+		dibujarFormatoBits(modules, mask);  // sobreescribe el formato viejo de los bits
+		aplicarXORmascara(modules, mask);  // aplica la seleccion final de mascara
 		return mask;  
 	}
 	
+	// Prueba las mascaras una tras otra sobre la matriz actual. Un candidato se deja de puntuar
+	// en cuanto su penalidad parcial iguala la mejor, porque ya no puede ganar.
+	private int elegirMascaraSecuencial() {
+		return elegirMascaraSecuencial(modules, tablas, errorCorrectionLevel, new PuntajePenalidad(size));
+	}
 	
-	// Calcula y devuelve el puntaje de penalización basado en el estado de los módulos actuales de este codigo QR.
-	// Esto es utilizado por el algoritmo de elección de máscara automática para encontrar el patrón de máscara que produce la puntuación más baja.
-	private int obtenerCostoPenalidad() {
-		int result = 0;
-		
-		// Modulos adyacentes en fila teniendo el mismo color
-		for (int y = 0; y < size; y++) {
-			boolean colorX = false;
-			for (int x = 0, runX = 0; x < size; x++) {
-				if (x == 0 || modules[y][x] != colorX) {
-					colorX = modules[y][x];
-					runX = 1;
-				} else {
-					runX++;
-					if (runX == 5)
-						result += PENALTY_N1;
-					else if (runX > 5)
-						result++;
-				}
-			}
-		}
-		// Modulos adyacentes en columnas teniendo el mismo color
-		for (int x = 0; x < size; x++) {
-			boolean colorY = false;
-			for (int y = 0, runY = 0; y < size; y++) {
-				if (y == 0 || modules[y][x] != colorY) {
-					colorY = modules[y][x];
-					runY = 1;
-				} else {
-					runY++;
-					if (runY == 5)
-						result += PENALTY_N1;
-					else if (runY > 5)
-						result++;
-				}
-			}
-		}
-		
-		// bloques de modulos de 2*2 teniendo el mismo color
-		for (int y = 0; y < size - 1; y++) {
-			for (int x = 0; x < size - 1; x++) {
-				boolean color = modules[y][x];
-				if (  color == modules[y][x + 1] &&
-				      color == modules[y + 1][x] &&
-				      color == modules[y + 1][x + 1])
-					result += PENALTY_N2;
-			}
-		}
-		
-		// Patrón de búsqueda en filas
-		for (int y = 0; y < size; y++) {
-			for (int x = 0, bits = 0; x < size; x++) {
-				bits = ((bits << 1) & 0x7FF) | (modules[y][x] ? 1 : 0);
-				if (x >= 10 && (bits == 0x05D || bits == 0x5D0))  // Needs 11 bits accumulated
-					result += PENALTY_N3;
+	// igual que el anterior sobre una matriz sin mascara dada, con las tablas de su version y un puntaje reutilizable
+	static int elegirMascaraSecuencial(MatrizBits modules, TablasVersion tablas, Ecc ecl, PuntajePenalidad puntaje) {
+		int mask = -1;
+		int minPenalty = Integer.MAX_VALUE;
+		for (int i = 0; i < 8; i++) {
+			dibujarFormatoBits(modules, ecl, i);
+			modules.xor(tablas.mascaras[i]);
+			int penalty = puntaje.calcular(modules, minPenalty - 1);
+			if (penalty < minPenalty) {
+				mask = i;
+				minPenalty = penalty;
 			}
+			modules.xor(tablas.mascaras[i]);  // Undoes the mask due to XOR
 		}
-		// Patrón de búsqueda en columnas
-		for (int x = 0; x < size; x++) {
-			for (int y = 0, bits = 0; y < size; y++) {
-				bits = ((bits << 1) & 0x7FF) | (modules[y][x] ? 1 : 0);
-				if (y >= 10 && (bits == 0x05D || bits == 0x5D0))  // Needs 11 bits accumulated
-					result += PENALTY_N3;
-			}
-		}
-		
-		// Balance de módulos en blanco y negro
-		int black = 0;
-		for (boolean[] row : modules) {
-			for (boolean color : row) {
-				if (color)
-					black++;
-			}
+		return mask;
+	}
+	
+	// Puntua las 8 mascaras a la vez, cada una en su propia copia de la matriz. La mejor penalidad encontrada
+	// se comparte para cortar a los candidatos que ya la superan; los empates se resuelven por el numero de mascara menor.
+	private int elegirMascaraParalela() {
+		final int[] penalidades = new int[8];
+		final AtomicInteger mejor = new AtomicInteger(Integer.MAX_VALUE);
+		IntStream.range(0, 8).parallel().forEach(i -> {
+			MatrizBits copia = new MatrizBits(modules);
+			dibujarFormatoBits(copia, i);
+			aplicarXORmascara(copia, i);
+			int penalty = new PuntajePenalidad(size).calcular(copia, mejor.get());
+			penalidades[i] = penalty;
+			mejor.accumulateAndGet(penalty, Math::min);
+		});
+		int mask = 0;
+		for (int i = 1; i < 8; i++) {
+			if (penalidades[i] < penalidades[mask])
+				mask = i;
 		}
-		int total = size * size;
-		// Hallar el k más pequeño tal que (45-5k)% <= oscuro / total <= (55 + 5k)%
-		for (int k = 0; black*20 < (9-k)*total || black*20 > (11+k)*total; k++)
-			result += PENALTY_N4;
-		return result;
+		return mask;
 	}
-
 	
 	
 	//Devuelve un conjunto de posiciones de los patrones de alineación en orden ascendente. 
@@ -470,7 +602,7 @@ public final class QR {
 	
 	//Devuelve el número de bits de datos que se pueden almacenar en un código QR del número de versión dado, después de excluir todos los módulos de función. Esto incluye bits de resto, por lo que puede no ser un múltiplo de 8.
 	
-	private static int obtenerNumeroFilasModuloDatos(int ver) {
+	static int obtenerNumeroFilasModuloDatos(int ver) {
 		if (ver < 1 || ver > 40)
 			throw new IllegalArgumentException("Version fuera del rango");
 		
@@ -491,6 +623,34 @@ public final class QR {
 		return result;
 	}
 
+	// Devuelve la version mas pequena del rango en la que caben los segmentos con el nivel dado, o -1 si no caben en ninguna.
+	// Dentro de cada clase de versiones el ancho de los contadores no cambia, asi que los bits usados son los mismos y
+	// basta una busqueda binaria sobre la tabla de capacidades, que crece con la version.
+	static int versionMinima(List<SementoQR> segs, Ecc ecl, int versionmin, int versionMAX) {
+		int[] capacidad = CAPACIDAD_BITS[ecl.ordinal()];
+		for (int c = 0; c + 1 < INICIO_CLASE_VERSION.length; c++) {
+			int lo = Math.max(versionmin, INICIO_CLASE_VERSION[c]);
+			int hi = Math.min(versionMAX, INICIO_CLASE_VERSION[c + 1] - 1);
+			if (lo > hi)
+				continue;
+			int bitsUsados = SementoQR.obtenerBitsTotales(segs, lo);
+			if (bitsUsados == -1 || bitsUsados > capacidad[hi])
+				continue;
+			while (lo < hi) {
+				int mitad = (lo + hi) >>> 1;
+				if (bitsUsados <= capacidad[mitad])
+					hi = mitad;
+				else
+					lo = mitad + 1;
+			}
+			return lo;
+		}
+		return -1;
+	}
+	
+	// primera version de cada clase de ancho de contadores de caracteres (1-9, 10-26 y 27-40), terminando en 41
+	static final int[] INICIO_CLASE_VERSION = {1, 10, 27, 41};
+	
 	// Devuelve el número de palabras de código de 8 bits (es decir, no de corrección de errores) contenidas en cualquier código QR del número de versión y nivel de corrección de errores dados, con los bits de resto eliminados.
 	
 	static int getNumDataCodewords(int ver, Ecc ecl) {
@@ -499,13 +659,6 @@ public final class QR {
 		return obtenerNumeroFilasModuloDatos(ver) / 8 - ECC_CODEWORDS_PER_BLOCK[ecl.ordinal()][ver] * NUM_ERROR_CORRECTION_BLOCKS[ecl.ordinal()][ver];
 	}
 
-	// se usan para  obtenerCostoPenalidad(), y para obtener la mejor mascara para el algoritmo del masqueo.
-	private static final int PENALTY_N1 = 3;
-	private static final int PENALTY_N2 = 3;
-	private static final int PENALTY_N3 = 40;
-	private static final int PENALTY_N4 = 10;
-	
-	
 	private static final byte[][] ECC_CODEWORDS_PER_BLOCK = {
 		
 		
@@ -523,6 +676,16 @@ public final class QR {
 		{-1, 1, 1, 2, 2, 4, 4, 6, 6, 8, 8,  8, 10, 12, 16, 12, 17, 16, 18, 21, 20, 23, 23, 25, 27, 29, 34, 34, 35, 38, 40, 43, 45, 48, 51, 53, 56, 59, 62, 65, 68},  // Quartile
 		{-1, 1, 1, 2, 4, 4, 4, 5, 6, 8, 8, 11, 11, 16, 16, 18, 16, 19, 21, 25, 25, 25, 34, 30, 32, 35, 37, 40, 42, 45, 48, 51, 54, 57, 60, 63, 66, 70, 74, 77, 81},  // High
 	};
+	
+	// bits de datos disponibles por nivel de correccion (ordinal) y version, es decir getNumDataCodewords * 8
+	private static final int[][] CAPACIDAD_BITS = new int[4][41];
+	
+	static {
+		for (Ecc ecl : Ecc.values()) {
+			for (int ver = 1; ver <= 40; ver++)
+				CAPACIDAD_BITS[ecl.ordinal()][ver] = getNumDataCodewords(ver, ecl) * 8;
+		}
+	}
 
 	
         
@@ -530,15 +693,39 @@ public final class QR {
         //Los objetos son inmutables y el estado sólo depende del grado. Esta clase existe porque el polinomio del divisor no necesita ser recalculado para cada entrada.
 	
        
-	private static final class ReedSolomonGenerator {
-	
+	static final class ReedSolomonGenerator {
+	
+		// Tablas de antilogaritmos y logaritmos de GF(2^8 / 0x11D) con generador 0x02.
+		// EXP se duplica a 512 entradas para que la suma de dos logaritmos no necesite reducirse modulo 255.
+		private static final int[] EXP = new int[512];
+		private static final int[] LOG = new int[256];
+		
+		static {
+			int x = 1;
+			for (int i = 0; i < 255; i++) {
+				EXP[i] = x;
+				LOG[x] = i;
+				x <<= 1;
+				if (x >>> 8 != 0)
+					x ^= 0x11D;
+			}
+			for (int i = 255; i < EXP.length; i++)
+				EXP[i] = EXP[i - 255];
+		}
+		
+		// Generadores ya construidos indexados por grado, compartidos entre hilos. Cada uno se construye una sola vez.
+		private static final AtomicReferenceArray<ReedSolomonGenerator> GENERADORES = new AtomicReferenceArray<>(256);
+		
 		// Coeficientes del polinomio del divisor, almacenados de mayor a menor potencia, excluyendo el término principal que es siempre 1.
 		private final byte[] coeficientes;
+		
+		// Tabla de productos por coeficiente: productos[factor * grado + i] == coeficientes[i] * factor en GF(2^8).
+		private final byte[] productos;
 	
 		/*-- Constructor --*/
-		//Crea un generador ECC Reed-Solomon para el grado especificado. Esto podría ser implementado como una tabla de consulta sobre todos los posibles valores de parámetros, en lugar de como un algoritmo.
+		//Crea un generador ECC Reed-Solomon para el grado especificado. Usar obtener() para reutilizar los generadores ya construidos.
 		
-		public ReedSolomonGenerator(int degree) {// el parametro degree es el polinomio divisor
+		private ReedSolomonGenerator(int degree) {// el parametro degree es el polinomio divisor
 			if (degree < 1 || degree > 255)
 				throw new IllegalArgumentException("Grado fuera de rango");
 			
@@ -559,38 +746,60 @@ public final class QR {
 				}
 				root = multiplicar(root, 0x02);
 			}
+			
+			productos = new byte[256 * degree];
+			for (int factor = 1; factor < 256; factor++) {
+				for (int j = 0; j < degree; j++)
+					productos[factor * degree + j] = (byte)multiplicar(coeficientes[j] & 0xFF, factor);
+			}
+		}
+		
+		// Devuelve el generador compartido del grado dado, construyendolo la primera vez que se pide.
+		static ReedSolomonGenerator obtener(int degree) {
+			if (degree < 1 || degree > 255)
+				throw new IllegalArgumentException("Grado fuera de rango");
+			ReedSolomonGenerator rs = GENERADORES.get(degree);
+			if (rs == null) {
+				rs = new ReedSolomonGenerator(degree);
+				if (!GENERADORES.compareAndSet(degree, null, rs))
+					rs = GENERADORES.get(degree);  // otro hilo lo construyo primero
+			}
+			return rs;
 		}
+		
 		// Calcula y devuelve las palabras clave de corrección de errores de Reed-Solomon para la secuencia especificada de palabras de código de datos.
 		public byte[] obtenerBitsRecordatorio(byte[] data) {
 			Objects.requireNonNull(data);
-			
-			// Calcula el reemisor para optimizar la division polinomial
 			byte[] result = new byte[coeficientes.length];
-			for (byte b : data) {
-				int factor = (b ^ result[0]) & 0xFF;
-				System.arraycopy(result, 1, result, 0, result.length - 1);
-				result[result.length - 1] = 0;
-				for (int i = 0; i < result.length; i++)
-					result[i] ^= multiplicar(coeficientes[i] & 0xFF, factor);
-			}
+			calcularResiduo(data, 0, data.length, result, 0);
 			return result;
 		}
 		
+		// Igual que el anterior para los len bytes de data que empiezan en inicio, escribiendo las palabras de correccion en result
+		// a partir de desde sin crear arreglos. Esa zona de result no debe solaparse con los datos.
+		void calcularResiduo(byte[] data, int inicio, int len, byte[] result, int desde) {
+			// Calcula el reemisor para optimizar la division polinomial; cada termino es una sola consulta a la tabla de productos
+			int grado = coeficientes.length;
+			int fin = desde + grado - 1;
+			Arrays.fill(result, desde, fin + 1, (byte)0);
+			for (int k = inicio; k < inicio + len; k++) {
+				int base = ((data[k] ^ result[desde]) & 0xFF) * grado;
+				System.arraycopy(result, desde + 1, result, desde, grado - 1);
+				result[fin] = 0;
+				for (int i = 0; i < grado; i++)
+					result[desde + i] ^= productos[base + i];
+			}
+		}
+		
 		
 		// Devuelve el producto de los dos elementos de campo modulo GF (2 ^ 8 / 0x11D)
-		// Los argumentos y el resultado son enteros sin signo de 8 bits. Esto podría ser implementado como una tabla de búsqueda de 256 * 256 entradas de uint8.
+		// Los argumentos y el resultado son enteros sin signo de 8 bits. Se resuelve con las tablas de logaritmos.
 		private static int multiplicar(int x, int y) {
 			if (x >>> 8 != 0 || y >>> 8 != 0)
 				throw new IllegalArgumentException("Byte fuera de rango");
-			
-			int z = 0;
-			for (int i = 7; i >= 0; i--) {
-				z = (z << 1) ^ ((z >>> 7) * 0x11D);
-				z ^= ((y >>> i) & 1) * x;
-			}
-			if (z >>> 8 != 0)
-				throw new AssertionError();
-			return z;
+			if (x == 0 || y == 0)
+				return 0;
+			return EXP[LOG[x] + LOG[y]];
 		}
 		
 	}
@@ -0,0 +1,113 @@
+package MIQR;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Elige el modo de cada caracter de un texto con programacion dinamica, de modo que la suma de bits de todos los
+// segmentos (cabeceras de modo y contador incluidas) sea la menor posible para una version dada.
+// Los costos se llevan en sextos de bit porque un caracter numerico ocupa 10/3 bits y uno alfanumerico 11/2.
+final class SegmentadorOptimo {
+
+	private static final SementoQR.Mode[] MODOS = {
+		SementoQR.Mode.BYTE, SementoQR.Mode.ALPHANUMERIC, SementoQR.Mode.NUMERIC, SementoQR.Mode.KANJI};
+
+	private SegmentadorOptimo() {}
+
+
+        // devuelve la lista de segmentos optima para el texto en la version dada
+	static List<SementoQR> segmentar(String text, int version) {
+		List<SementoQR> result = new ArrayList<>();
+		if (text.isEmpty())
+			return result;
+		int[] codigos = text.codePoints().toArray();
+		SementoQR.Mode[] modos = calcularModos(codigos, version);
+
+		// agrupa los caracteres consecutivos con el mismo modo en un segmento
+		for (int inicio = 0; inicio < codigos.length; ) {
+			SementoQR.Mode modo = modos[inicio];
+			int fin = inicio + 1;
+			while (fin < codigos.length && modos[fin] == modo)
+				fin++;
+			String parte = new String(codigos, inicio, fin - inicio);
+			switch (modo) {
+				case NUMERIC:       result.add(SementoQR.generarNumerico(parte));  break;
+				case ALPHANUMERIC:  result.add(SementoQR.generarAlfanumerico(parte));  break;
+				case KANJI:         result.add(SementoQR.generarKanji(parte));  break;
+				default:            result.add(SementoQR.generarBytes(parte.getBytes(StandardCharsets.UTF_8)));  break;
+			}
+			inicio = fin;
+		}
+		return result;
+	}
+
+        // modo elegido para cada caracter
+	private static SementoQR.Mode[] calcularModos(int[] codigos, int version) {
+		int n = MODOS.length;
+		int[] costoCabecera = new int[n];
+		for (int j = 0; j < n; j++)
+			costoCabecera[j] = (4 + MODOS[j].numCharCountBits(version)) * 6;
+
+		// desde[i][j]: modo del caracter i en el mejor camino que termina en el modo j tras el caracter i, null si no hay
+		SementoQR.Mode[][] desde = new SementoQR.Mode[codigos.length][n];
+		int[] anterior = costoCabecera.clone();
+		int[] actual = new int[n];
+		for (int i = 0; i < codigos.length; i++) {
+			int c = codigos[i];
+			// continuar en el mismo modo
+			actual[0] = anterior[0] + bytesUtf8(c) * 8 * 6;
+			desde[i][0] = MODOS[0];
+			if (SementoQR.indiceAlfanumerico(c) != -1) {
+				actual[1] = anterior[1] + 33;
+				desde[i][1] = MODOS[1];
+			}
+			if ('0' <= c && c <= '9') {
+				actual[2] = anterior[2] + 20;
+				desde[i][2] = MODOS[2];
+			}
+			if (SementoQR.valorKanji(c) != -1) {
+				actual[3] = anterior[3] + 78;
+				desde[i][3] = MODOS[3];
+			}
+
+			// o cerrar el segmento al bit siguiente y abrir uno nuevo en otro modo
+			for (int j = 0; j < n; j++) {
+				for (int k = 0; k < n; k++) {
+					int costo = (actual[k] + 5) / 6 * 6 + costoCabecera[j];
+					if (desde[i][k] != null && (desde[i][j] == null || costo < actual[j])) {
+						actual[j] = costo;
+						desde[i][j] = MODOS[k];
+					}
+				}
+			}
+			int[] t = anterior;
+			anterior = actual;
+			actual = t;
+		}
+
+		// modo final mas barato, y de ahi hacia atras
+		int mejor = 0;
+		for (int j = 1; j < n; j++) {
+			if (anterior[j] < anterior[mejor])
+				mejor = j;
+		}
+		SementoQR.Mode modo = MODOS[mejor];
+		SementoQR.Mode[] result = new SementoQR.Mode[codigos.length];
+		for (int i = codigos.length - 1; i >= 0; i--) {
+			for (int j = 0; j < n; j++) {
+				if (MODOS[j] == modo) {
+					modo = desde[i][j];
+					result[i] = modo;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int bytesUtf8(int c) {
+		return c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+	}
+
+}
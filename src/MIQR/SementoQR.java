@@ -1,5 +1,7 @@
 package MIQR;
 
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -11,37 +13,200 @@ import java.util.regex.Pattern;
 public final class SementoQR {
 	
 
-    // codifica a alfanumerico con la clase bitbuffer
-	public static SementoQR generarAlfanumerico(String text) {
+    // codifica una cadena de digitos en modo numerico, 10 bits por cada grupo de 3
+	public static SementoQR generarNumerico(CharSequence digits) {
+		Objects.requireNonNull(digits);
+		SementoQR result = codificarNumerico(digits);
+		if (result == null)
+			throw new IllegalArgumentException("String contains non-numeric characters");
+		return result;
+	}
+
+    // codifica en modo numerico en una sola pasada, o regresa null en el primer caracter que no es digito
+	private static SementoQR codificarNumerico(CharSequence digits) {
+		int n = digits.length();
+		int bitLen = n / 3 * 10 + (n % 3 == 0 ? 0 : n % 3 * 3 + 1);
+		byte[] out = new byte[(bitLen + 7) / 8];
+		long acc = 0;
+		int pendientes = 0, pos = 0;
+		for (int i = 0; i < n; ) {  // grupos de hasta 3 digitos
+			int len = Math.min(n - i, 3), valor = 0;
+			for (int fin = i + len; i < fin; i++) {
+				int d = digits.charAt(i) - '0';
+				if (d < 0 || d > 9)
+					return null;
+				valor = valor * 10 + d;
+			}
+			acc = (acc << (len * 3 + 1)) | valor;
+			pendientes += len * 3 + 1;
+			for (; pendientes >= 8; pendientes -= 8)
+				out[pos++] = (byte)(acc >>> (pendientes - 8));
+		}
+		if (pendientes > 0)
+			out[pos] = (byte)(acc << (8 - pendientes));
+		return new SementoQR(out, Mode.NUMERIC, n, bitLen);
+	}
+
+    // codifica bytes arbitrarios en modo byte, 8 bits por byte
+	public static SementoQR generarBytes(byte[] data) {
+		Objects.requireNonNull(data);
+		if (data.length > Integer.MAX_VALUE / 8)
+			throw new IllegalArgumentException("Datos muy largos");
+		return new SementoQR(Mode.BYTE, data.length, data, data.length * 8);
+	}
+
+    // codifica en modo kanji, 13 bits por caracter; todos los caracteres deben estar en la tabla Shift_JIS de doble byte
+	public static SementoQR generarKanji(String text) {
 		Objects.requireNonNull(text);
-		if (!alfanumerico_regex.matcher(text).matches())
-			throw new IllegalArgumentException("String contains unencodable characters in alphanumeric mode");
-		
 		BitBuffer bb = new BitBuffer();
+		for (int i = 0; i < text.length(); i++) {
+			int val = valorKanji(text.charAt(i));
+			if (val == -1)
+				throw new IllegalArgumentException("String contains non-kanji-mode characters");
+			bb.apilarBits(val, 13);
+		}
+		return new SementoQR(Mode.KANJI, text.length(), bb.obtenerBytes(), bb.bitLength());
+	}
+
+    // segmento ECI (Extended Channel Interpretation) con el numero de asignacion dado, de 0 a 999999
+	public static SementoQR generarECI(int asignacion) {
+		BitBuffer bb = new BitBuffer();
+		if (asignacion < 0)
+			throw new IllegalArgumentException("ECI assignment value out of range");
+		else if (asignacion < (1 << 7))
+			bb.apilarBits(asignacion, 8);
+		else if (asignacion < (1 << 14)) {
+			bb.apilarBits(2, 2);
+			bb.apilarBits(asignacion, 14);
+		} else if (asignacion < 1_000_000) {
+			bb.apilarBits(6, 3);
+			bb.apilarBits(asignacion, 21);
+		} else
+			throw new IllegalArgumentException("ECI assignment value out of range");
+		return new SementoQR(Mode.ECI, 0, bb.obtenerBytes(), bb.bitLength());
+	}
+
+    // cabecera de anexo estructurado (Structured Append): posicion del simbolo (desde 0), total de simbolos (hasta 16)
+    // y paridad, el XOR de todos los bytes del mensaje completo. Va al inicio de cada simbolo de la serie.
+	public static SementoQR generarAnexoEstructurado(int indice, int total, int paridad) {
+		if (total < 1 || total > 16 || indice < 0 || indice >= total || paridad >>> 8 != 0)
+			throw new IllegalArgumentException("valor fuera de rango");
+		BitBuffer bb = new BitBuffer();
+		bb.apilarBits(indice, 4);
+		bb.apilarBits(total - 1, 4);
+		bb.apilarBits(paridad, 8);
+		return new SementoQR(Mode.STRUCTURED_APPEND, 0, bb.obtenerBytes(), bb.bitLength());
+	}
+
+    // codifica a alfanumerico, 11 bits por cada par de caracteres
+	public static SementoQR generarAlfanumerico(CharSequence text) {
+		Objects.requireNonNull(text);
+		SementoQR result = codificarAlfanumerico(text);
+		if (result == null)
+			throw new IllegalArgumentException("String contains unencodable characters in alphanumeric mode");
+		return result;
+	}
+
+    // codifica en modo alfanumerico en una sola pasada: la tabla valida y traduce cada caracter a la vez, y los pares se
+    // empaquetan directo en el arreglo del resultado. Regresa null en el primer caracter fuera del conjunto.
+	private static SementoQR codificarAlfanumerico(CharSequence text) {
+		int n = text.length();
+		int bitLen = n / 2 * 11 + (n & 1) * 6;
+		byte[] out = new byte[(bitLen + 7) / 8];
+		long acc = 0;
+		int pendientes = 0, pos = 0;
 		int i;
-		for (i = 0; i + 2 <= text.length(); i += 2) {  // Process groups of 2
-			int temp = alfanumerico_charset.indexOf(text.charAt(i)) * 45;
-			temp += alfanumerico_charset.indexOf(text.charAt(i + 1));
-			bb.apilarBits(temp, 11);
+		for (i = 0; i + 2 <= n; i += 2) {  // Process groups of 2
+			int a = indiceAlfanumerico(text.charAt(i));
+			int b = indiceAlfanumerico(text.charAt(i + 1));
+			if ((a | b) < 0)
+				return null;
+			acc = (acc << 11) | (a * 45 + b);
+			pendientes += 11;
+			for (; pendientes >= 8; pendientes -= 8)
+				out[pos++] = (byte)(acc >>> (pendientes - 8));
+		}
+		if (i < n) {  // 1 character remaining
+			int a = indiceAlfanumerico(text.charAt(i));
+			if (a < 0)
+				return null;
+			acc = (acc << 6) | a;
+			pendientes += 6;
+			for (; pendientes >= 8; pendientes -= 8)
+				out[pos++] = (byte)(acc >>> (pendientes - 8));
 		}
-		if (i < text.length())  // 1 character remaining
-			bb.apilarBits(alfanumerico_charset.indexOf(text.charAt(i)), 6);
-		return new SementoQR(Mode.ALPHANUMERIC, text.length(), bb.obtenerBytes(), bb.bitLength());
+		if (pendientes > 0)
+			out[pos] = (byte)(acc << (8 - pendientes));
+		return new SementoQR(out, Mode.ALPHANUMERIC, n, bitLen);
 	}
 
         // genera los segmentos para la cadena recibida
-        //Devuelve una nueva lista mutable de cero o más segmentos para representar la cadena de texto Unicode especificada. El resultado puede utilizar varios modos de segmento y modos de conmutación para optimizar la longitud de la secuencia de bits.
+        //Devuelve una nueva lista mutable de cero o un segmento para la cadena: numerico si solo tiene digitos, alfanumerico si cabe
+        //en ese conjunto, y si no en modo byte con UTF-8. Para mezclar modos dentro de la cadena ver generarSegmentosOptimos.
 	public static List<SementoQR> generarSegmentos(String text) {
 		Objects.requireNonNull(text);
 		
 		// Select the most efficient segment encoding automatically
+		// cada intento se abandona en el primer caracter que no le sirve
 		List<SementoQR> result = new ArrayList<>();
 		if (text.equals(""))
 			return result;
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.SEGMENTACION);
+		SementoQR seg = codificarNumerico(text);
+		if (seg == null)
+			seg = codificarAlfanumerico(text);
+		if (seg == null)
+			seg = generarBytes(text.getBytes(StandardCharsets.UTF_8));
+		result.add(seg);
+		if (m != null)
+			m.terminar(-1, null, -1, seg.bitLength / 8);
+		return result;
+	}
+
+        //Devuelve los segmentos con la menor longitud total de bits para la version dada, cambiando de modo (numerico,
+        //alfanumerico, byte o kanji) donde convenga. Solo importa la clase de la version (1-9, 10-26 o 27-40), que fija el
+        //ancho de los contadores de caracteres.
+	public static List<SementoQR> generarSegmentosOptimos(String text, int version) {
+		Objects.requireNonNull(text);
+		if (version < 1 || version > 40)
+			throw new IllegalArgumentException("Version number out of range");
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.SEGMENTACION);
+		List<SementoQR> result = SegmentadorOptimo.segmentar(text, version);
+		if (m != null)
+			m.terminar(version, null, -1, bitsDatos(result) / 8);
+		return result;
+	}
+
+        //Devuelve los segmentos optimos para la version mas pequena del rango en la que caben con el nivel de correccion dado.
+        //La segmentacion se calcula una vez por clase de version.
+	public static List<SementoQR> generarSegmentosOptimos(String text, QR.Ecc ecl, int versionmin, int versionMAX) {
+		Objects.requireNonNull(text);
+		Objects.requireNonNull(ecl);
+		if (!(1 <= versionmin && versionmin <= versionMAX && versionMAX <= 40))
+			throw new IllegalArgumentException("Valor invalido");
 		
-		else if (alfanumerico_regex.matcher(text).matches())
-			result.add(generarAlfanumerico(text));
-	
+		Medicion m = Medicion.iniciar(MetricasQR.Etapa.SEGMENTACION);
+		int[] inicio = QR.INICIO_CLASE_VERSION;
+		for (int c = 0; c + 1 < inicio.length; c++) {
+			int lo = Math.max(versionmin, inicio[c]);
+			int hi = Math.min(versionMAX, inicio[c + 1] - 1);
+			if (lo > hi)
+				continue;
+			List<SementoQR> segs = SegmentadorOptimo.segmentar(text, lo);
+			if (QR.versionMinima(segs, ecl, lo, hi) != -1) {
+				if (m != null)
+					m.terminar(lo, ecl, -1, bitsDatos(segs) / 8);
+				return segs;
+			}
+		}
+		throw new IllegalArgumentException("Datos muy largos");
+	}
+
+	// suma de los bits de datos de los segmentos, sin cabeceras
+	private static long bitsDatos(List<SementoQR> segs) {
+		long result = 0;
+		for (SementoQR seg : segs)
+			result += seg.bitLength;
 		return result;
 	}
 
@@ -69,6 +234,14 @@ public final class SementoQR {
 		bitLength = bitLen;
 	}
 
+        // constructor sin copia para los generadores de esta clase; el arreglo ya tiene el largo exacto y no se comparte
+	private SementoQR(byte[] propio, Mode md, int numCh, int bitLen) {
+		mode = md;
+		numChars = numCh;
+		data = propio;
+		bitLength = bitLen;
+	}
+
         //Devuelve el byte de datos en el índice especificado
 	public byte obtenerBytes(int index) {
 		if (index < 0 || index > data.length)
@@ -78,6 +251,27 @@ public final class SementoQR {
 	
 	
 
+        //regresa el arreglo interno de datos sin copiarlo; no debe modificarse
+	byte[] datos() {
+		return data;
+	}
+
+        //dos segmentos son iguales si tienen el mismo modo, numero de caracteres y bits de datos
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof SementoQR))
+			return false;
+		SementoQR otro = (SementoQR)o;
+		return mode == otro.mode && numChars == otro.numChars && bitLength == otro.bitLength && Arrays.equals(data, otro.data);
+	}
+
+	@Override
+	public int hashCode() {
+		return ((mode.hashCode() * 31 + numChars) * 31 + bitLength) * 31 + Arrays.hashCode(data);
+	}
+
 	static int obtenerBitsTotales(List<SementoQR> segs, int version) {
 		Objects.requireNonNull(segs);
 		if (version < 1 || version > 40)
@@ -97,18 +291,72 @@ public final class SementoQR {
 		return (int)result;
 	}
 
-	//constantes de expresiones regulares para codificacion alfanumerica
+	//expresiones regulares de los conjuntos numerico y alfanumerico; los generadores no las usan, validan con la tabla
+	
+	public static final Pattern numerico_regex = Pattern.compile("[0-9]*");
 	
 	public static final Pattern alfanumerico_regex = Pattern.compile("[A-Z0-9 $%*+./:-]*");
 	
 	private static final String alfanumerico_charset = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
 	
+	//indice de cada caracter ASCII en alfanumerico_charset, -1 si no esta
+	private static final byte[] TABLA_ALFANUMERICA = new byte[128];
+	
+	static {
+		Arrays.fill(TABLA_ALFANUMERICA, (byte)-1);
+		for (int i = 0; i < alfanumerico_charset.length(); i++)
+			TABLA_ALFANUMERICA[alfanumerico_charset.charAt(i)] = (byte)i;
+	}
+	
+        //regresa el indice del caracter en el conjunto alfanumerico, o -1 si no esta
+	static int indiceAlfanumerico(int c) {
+		return c >= 0 && c < 128 ? TABLA_ALFANUMERICA[c] : -1;
+	}
+	
+        //regresa el valor de 13 bits del caracter en modo kanji, o -1 si no tiene codigo Shift_JIS de doble byte en los rangos
+        //0x8140-0x9FFC o 0xE040-0xEBBF
+	static int valorKanji(int c) {
+		return c <= 0xFFFF ? TablaKanji.VALORES[c] : -1;
+	}
+	
+	//tabla de valores kanji de cada caracter del plano basico, construida con el codificador Shift_JIS la primera vez que se usa
+	private static final class TablaKanji {
+		static final short[] VALORES = construir();
+		
+		private static short[] construir() {
+			short[] result = new short[0x10000];
+			Arrays.fill(result, (short)-1);
+			if (!Charset.isSupported("Shift_JIS"))
+				return result;
+			CharsetEncoder cod = Charset.forName("Shift_JIS").newEncoder();
+			for (int c = 0; c <= 0xFFFF; c++) {
+				if (c < 0x80 || Character.isSurrogate((char)c) || !cod.canEncode((char)c))
+					continue;
+				byte[] b = String.valueOf((char)c).getBytes(cod.charset());
+				if (b.length != 2)
+					continue;
+				int sjis = (b[0] & 0xFF) << 8 | (b[1] & 0xFF);
+				if (0x8140 <= sjis && sjis <= 0x9FFC)
+					sjis -= 0x8140;
+				else if (0xE040 <= sjis && sjis <= 0xEBBF)
+					sjis -= 0xC140;
+				else
+					continue;
+				result[c] = (short)((sjis >>> 8) * 0xC0 + (sjis & 0xFF));
+			}
+			return result;
+		}
+	}
+	
         //tipo de codificacion
 	public enum Mode {
 		
-		
-		
-		ALPHANUMERIC(0x2,  9, 11, 13);
+		NUMERIC     (0x1, 10, 12, 14),
+		ALPHANUMERIC(0x2,  9, 11, 13),
+		BYTE        (0x4,  8, 16, 16),
+		KANJI       (0x8,  8, 10, 12),
+		ECI         (0x7,  0,  0,  0),
+		STRUCTURED_APPEND(0x3, 0, 0, 0);
 	
 		final int modeBits;
 		
@@ -122,7 +370,9 @@ public final class SementoQR {
 	
                 //Devuelve el ancho de bit del campo de recuento de caracteres de segmento para este objeto de modo en el número de versión especificado.
 		int numCharCountBits(int ver) {
-			if      ( 1 <= ver && ver <=  9)  return numBitsCharCount[0];			
+			if      ( 1 <= ver && ver <=  9)  return numBitsCharCount[0];
+			else if (10 <= ver && ver <= 26)  return numBitsCharCount[1];
+			else if (27 <= ver && ver <= 40)  return numBitsCharCount[2];
 			else  throw new IllegalArgumentException("numero de version fuera de rango");
 		}
 		
@@ -0,0 +1,314 @@
+package MIQR;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+// Servicio HTTP sin dependencias (com.sun.net.httpserver del JDK) que devuelve el simbolo de un texto.
+//   GET /qr?texto=...&ecc=L|M|Q|H&vmin=1&vmax=40&mascara=-1&escala=10&borde=4&formato=png|svg|pdf
+// La respuesta lleva un ETag calculado del cuerpo generado, asi que cambia si cambia la salida del codificador o de los
+// escritores; un If-None-Match que coincide se contesta 304 sin enviar el cuerpo, pero solo despues de saber que la
+// peticion se puede codificar. Las respuestas ya generadas se guardan con su ETag en una cache LRU en memoria, asi que
+// un 304 repetido tampoco vuelve a codificar.
+public final class ServidorQR {
+
+	// ruta del servicio
+	public static final String RUTA = "/qr";
+
+	// limites de los parametros, para que una sola peticion no pueda pedir una imagen enorme
+	private static final int MAX_LONGITUD_TEXTO = 7089;
+	private static final int MAX_ESCALA = 100;
+	private static final int MAX_BORDE = 100;
+
+	private final HttpServer servidor;
+	private final ExecutorService ejecutor;
+	private final CacheRespuestas cache;
+
+	// escritores PNG compartidos por los hilos del ejecutor, para reutilizar su Deflater entre peticiones
+	private final PoolEscritoresPNG escritoresPNG = new PoolEscritoresPNG(Runtime.getRuntime().availableProcessors());
+
+
+        // constructor; escucha en la direccion dada (puerto 0 elige uno libre) y atiende en el ejecutor dado.
+        // maxBytesCache es el total de bytes de respuestas que se guardan, 0 desactiva la cache.
+	public ServidorQR(InetSocketAddress direccion, ExecutorService ejecutor, long maxBytesCache) throws IOException {
+		Objects.requireNonNull(direccion);
+		Objects.requireNonNull(ejecutor);
+		if (maxBytesCache < 0)
+			throw new IllegalArgumentException("valor fuera de rango");
+		this.ejecutor = ejecutor;
+		cache = new CacheRespuestas(maxBytesCache);
+		servidor = HttpServer.create(direccion, 0);
+		servidor.setExecutor(ejecutor);
+		servidor.createContext(RUTA, this::atender);
+	}
+
+        // empieza a aceptar peticiones
+	public void iniciar() {
+		servidor.start();
+	}
+
+        // deja de aceptar peticiones, espera hasta los segundos dados a las que estan en curso, apaga el ejecutor
+        // y libera los escritores PNG
+	public void detener(int segundos) {
+		servidor.stop(segundos);
+		ejecutor.shutdown();
+		escritoresPNG.close();
+	}
+
+        // puerto en el que escucha, util cuando se pidio el puerto 0
+	public int puerto() {
+		return servidor.getAddress().getPort();
+	}
+
+        // Inicia el servicio en la interfaz local: java -cp LAB_QR.jar MIQR.ServidorQR [puerto]
+        // Atiende con un hilo por procesador; las peticiones de mas esperan en la cola del ejecutor en lugar de crear hilos.
+	public static void main(String[] args) throws IOException {
+		int puerto = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		ServidorQR s = new ServidorQR(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto),
+			Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), 64L * 1024 * 1024);
+		s.iniciar();
+		System.err.println("escuchando en http://localhost:" + s.puerto() + RUTA);
+	}
+
+	// atiende una peticion
+	private void atender(HttpExchange intercambio) throws IOException {
+		try {
+			String metodo = intercambio.getRequestMethod();
+			boolean head = metodo.equals("HEAD");
+			if (!head && !metodo.equals("GET")) {
+				intercambio.getResponseHeaders().set("Allow", "GET, HEAD");
+				responderTexto(intercambio, 405, "Metodo no permitido");
+				return;
+			}
+
+			Peticion peticion;
+			try {
+				peticion = new Peticion(intercambio.getRequestURI().getRawQuery());
+			} catch (IllegalArgumentException e) {
+				responderTexto(intercambio, 400, e.getMessage());
+				return;
+			}
+
+			// el cuerpo sale de la cache o se genera antes de mirar If-None-Match, asi una peticion que no se puede
+			// codificar siempre recibe su error y nunca un 304
+			Respuesta respuesta = cache.obtener(peticion.llave);
+			if (respuesta == null) {
+				try {
+					respuesta = new Respuesta(peticion.generar(escritoresPNG));
+				} catch (IllegalArgumentException e) {
+					responderTexto(intercambio, 400, e.getMessage());  // por ejemplo "Datos muy largos"
+					return;
+				}
+				cache.guardar(peticion.llave, respuesta);
+			}
+			byte[] cuerpo = respuesta.cuerpo;
+
+			// el ETag solo acompana a las respuestas 200 y 304, nunca a un error
+			Headers salida = intercambio.getResponseHeaders();
+			salida.set("ETag", respuesta.etag);
+			String siNoCoincide = intercambio.getRequestHeaders().getFirst("If-None-Match");
+			if (siNoCoincide != null && coincideEtag(siNoCoincide, respuesta.etag)) {
+				intercambio.sendResponseHeaders(304, -1);
+				return;
+			}
+			salida.set("Content-Type", peticion.tipoContenido());
+			if (head) {
+				salida.set("Content-Length", Integer.toString(cuerpo.length));
+				intercambio.sendResponseHeaders(200, -1);
+			} else {
+				intercambio.sendResponseHeaders(200, cuerpo.length);
+				try (OutputStream out = intercambio.getResponseBody()) {
+					out.write(cuerpo);
+				}
+			}
+		} finally {
+			intercambio.close();
+		}
+	}
+
+	// If-None-Match puede traer varias etiquetas separadas por comas, o *, que coincide con cualquier simbolo ya generado
+	private static boolean coincideEtag(String encabezado, String etag) {
+		for (String parte : encabezado.split(",")) {
+			String e = parte.trim();
+			if (e.startsWith("W/"))
+				e = e.substring(2);
+			if (e.equals("*") || e.equals(etag))
+				return true;
+		}
+		return false;
+	}
+
+	private static void responderTexto(HttpExchange intercambio, int estado, String mensaje) throws IOException {
+		byte[] cuerpo = (mensaje + "\n").getBytes(StandardCharsets.UTF_8);
+		intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		intercambio.sendResponseHeaders(estado, cuerpo.length);
+		try (OutputStream out = intercambio.getResponseBody()) {
+			out.write(cuerpo);
+		}
+	}
+
+	// parametros ya validados de una peticion, con su llave normalizada
+	private static final class Peticion {
+		final String texto;
+		final OpcionesQR opciones;
+		final int escala;
+		final int borde;
+		final String formato;
+		final String llave;
+
+		Peticion(String consulta) {
+			Map<String, String> p = leerConsulta(consulta);
+			texto = p.get("texto");
+			if (texto == null)
+				throw new IllegalArgumentException("Falta el parametro texto");
+			if (texto.length() > MAX_LONGITUD_TEXTO)
+				throw new IllegalArgumentException("Datos muy largos");
+			QR.Ecc ecc = OpcionesQR.leerNivel(p.getOrDefault("ecc", "L"));
+			int vmin = entero(p, "vmin", 1);
+			int vmax = entero(p, "vmax", 40);
+			int mascara = entero(p, "mascara", -1);
+			// cada peticion es un solo simbolo, asi que la mascara y la correccion pueden usar varios hilos
+			opciones = new OpcionesQR(ecc, vmin, vmax, mascara, false, QR.BusquedaMascara.AUTOMATICA, true);
+			escala = entero(p, "escala", 10);
+			borde = entero(p, "borde", 4);
+			if (escala < 1 || escala > MAX_ESCALA || borde < 0 || borde > MAX_BORDE)
+				throw new IllegalArgumentException("valor fuera de rango");
+			formato = p.getOrDefault("formato", "png").toLowerCase(Locale.ROOT);
+			if (!formato.equals("png") && !formato.equals("svg") && !formato.equals("pdf"))
+				throw new IllegalArgumentException("Formato no soportado: " + formato);
+
+			// la escala no cambia el SVG, asi que no forma parte de su llave
+			llave = formato + "|" + ecc + "|" + vmin + "|" + vmax + "|" + mascara + "|"
+				+ (formato.equals("svg") ? 0 : escala) + "|" + borde + "|" + texto;
+		}
+
+		// codifica y escribe el simbolo en el formato pedido
+		byte[] generar(PoolEscritoresPNG escritoresPNG) throws IOException {
+			QR qr = opciones.codificar(texto);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			switch (formato) {
+				case "png":
+					escritoresPNG.escribir(qr, escala, borde, bytes);
+					break;
+				case "svg":
+					Writer w = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+					EscritorVectorial.escribirSVG(qr, borde, w);
+					w.flush();
+					break;
+				default:
+					EscritorVectorial.escribirPDF(qr, borde, escala, bytes);
+					break;
+			}
+			return bytes.toByteArray();
+		}
+
+		String tipoContenido() {
+			switch (formato) {
+				case "png":  return "image/png";
+				case "svg":  return "image/svg+xml; charset=utf-8";
+				default:  return "application/pdf";
+			}
+		}
+
+		private static Map<String, String> leerConsulta(String consulta) {
+			Map<String, String> result = new HashMap<>();
+			if (consulta == null || consulta.isEmpty())
+				return result;
+			try {
+				for (String par : consulta.split("&")) {
+					int igual = par.indexOf('=');
+					String nombre = URLDecoder.decode(igual < 0 ? par : par.substring(0, igual), "UTF-8");
+					String valor = igual < 0 ? "" : URLDecoder.decode(par.substring(igual + 1), "UTF-8");
+					result.putIfAbsent(nombre, valor);
+				}
+			} catch (UnsupportedEncodingException e) {
+				throw new AssertionError(e);
+			}
+			return result;
+		}
+
+		private static int entero(Map<String, String> p, String nombre, int porDefecto) {
+			String valor = p.get(nombre);
+			if (valor == null)
+				return porDefecto;
+			try {
+				return Integer.parseInt(valor);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Valor invalido para " + nombre);
+			}
+		}
+	}
+
+	// cuerpo generado de una respuesta y su ETag
+	private static final class Respuesta {
+		final byte[] cuerpo;
+		final String etag;
+
+		Respuesta(byte[] cuerpo) {
+			this.cuerpo = cuerpo;
+			etag = "\"" + resumen(cuerpo) + "\"";
+		}
+
+		// SHA-256 del cuerpo en hexadecimal, truncado a 128 bits
+		private static String resumen(byte[] cuerpo) {
+			try {
+				byte[] h = MessageDigest.getInstance("SHA-256").digest(cuerpo);
+				StringBuilder sb = new StringBuilder(32);
+				for (int i = 0; i < 16; i++)
+					sb.append(Character.forDigit((h[i] >>> 4) & 0xF, 16)).append(Character.forDigit(h[i] & 0xF, 16));
+				return sb.toString();
+			} catch (NoSuchAlgorithmException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	// cache LRU de respuestas acotada por el total de bytes de los cuerpos guardados
+	private static final class CacheRespuestas {
+		private final long maxBytes;
+		private long bytes;
+		private final LinkedHashMap<String, Respuesta> entradas = new LinkedHashMap<>(64, 0.75f, true);
+
+		CacheRespuestas(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized Respuesta obtener(String llave) {
+			return entradas.get(llave);
+		}
+
+		synchronized void guardar(String llave, Respuesta respuesta) {
+			if (respuesta.cuerpo.length > maxBytes)
+				return;
+			Respuesta anterior = entradas.put(llave, respuesta);
+			bytes += respuesta.cuerpo.length - (anterior == null ? 0 : anterior.cuerpo.length);
+			Iterator<Respuesta> it = entradas.values().iterator();
+			while (bytes > maxBytes) {
+				bytes -= it.next().cuerpo.length;
+				it.remove();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package MIQR;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+// Tablas inmutables que solo dependen del numero de version, construidas la primera vez que se piden
+// (o al llamar QR.precalentar) y compartidas por todos los simbolos e hilos de esa version. Nadie debe modificarlas.
+final class TablasVersion {
+
+	// tablas ya construidas indexadas por version
+	private static final AtomicReferenceArray<TablasVersion> TABLAS = new AtomicReferenceArray<>(41);
+
+	// version de las tablas
+	final int version;
+
+	// modulos con los patrones de funcion ya pintados y todo lo demas en blanco; cada simbolo parte de una copia
+	final MatrizBits plantilla;
+
+	// mapa de los modulos de funcion de la version
+	final MatrizBits funciones;
+
+	// orden de colocacion de los datos: el bit de datos i va en el bit colocacion[i] de plantilla.palabras,
+	// es decir (y * palabrasPorFila << 6) + x. Incluye los bits de resto del final.
+	final int[] colocacion;
+
+	// los 8 patrones de mascara ya sin los modulos de funcion; aplicar la mascara i es un XOR con mascaras[i]
+	final MatrizBits[] mascaras;
+
+
+        // constructor, calcula todas las tablas de la version
+	private TablasVersion(int version) {
+		this.version = version;
+		int size = version * 4 + 17;
+		plantilla = new MatrizBits(size);
+		funciones = new MatrizBits(size);
+		QR.dibujarFuncionPatrones(plantilla, funciones, version);
+
+		// Recorre el zigzag una sola vez para la version
+		colocacion = new int[QR.obtenerNumeroFilasModuloDatos(version)];
+		int i = 0;  // indice de bits dentro de los datos
+		for (int right = size - 1; right >= 1; right -= 2) {  // Index of right column in each column pair
+			if (right == 6)
+				right = 5;
+			boolean upward = ((right + 1) & 2) == 0;
+			for (int vert = 0; vert < size; vert++) {  // contador vertical
+				int y = upward ? size - 1 - vert : vert;  // coordenada de y actual
+				for (int j = 0; j < 2; j++) {
+					int x = right - j;  //coordenada x actual
+					if (!funciones.get(x, y))
+						colocacion[i++] = (y * funciones.palabrasPorFila << 6) + x;
+				}
+			}
+		}
+		if (i != colocacion.length)
+			throw new AssertionError();
+
+		mascaras = new MatrizBits[8];
+		for (int mask = 0; mask < 8; mask++) {
+			MatrizBits patron = new MatrizBits(size);
+			for (int y = 0; y < size; y++) {
+				for (int w = 0; w < patron.palabrasPorFila; w++) {
+					long bits = 0;
+					for (int b = 0, x = w * 64; b < 64 && x < size; b++, x++) {
+						if (invierte(mask, x, y))
+							bits |= 1L << b;
+					}
+					int indice = y * patron.palabrasPorFila + w;
+					patron.palabras[indice] = bits & ~funciones.palabras[indice];
+				}
+			}
+			mascaras[mask] = patron;
+		}
+	}
+
+        // Devuelve las tablas de la version dada, construyendolas la primera vez que se piden.
+	static TablasVersion obtener(int version) {
+		if (version < 1 || version > 40)
+			throw new IllegalArgumentException("Version fuera del rango");
+		TablasVersion t = TABLAS.get(version);
+		if (t == null) {
+			t = new TablasVersion(version);
+			if (!TABLAS.compareAndSet(version, null, t))
+				t = TABLAS.get(version);  // otro hilo las construyo primero
+		}
+		return t;
+	}
+
+        // Escribe las palabras de codigo en destino, una palabra de 8 bits a la vez. Los modulos de datos de destino
+        // deben estar en blanco, como en la plantilla, porque solo se pintan los bits en negro.
+	void colocarPalabras(byte[] codigo, MatrizBits destino) {
+		colocarPalabras(codigo, codigo.length, destino);
+	}
+
+        // igual que el anterior con solo los primeros len bytes del arreglo
+	void colocarPalabras(byte[] codigo, int len, MatrizBits destino) {
+		if (len > colocacion.length / 8 || len > codigo.length || destino.size != plantilla.size)
+			throw new IllegalArgumentException();
+		long[] p = destino.palabras;
+		for (int k = 0, i = 0; k < len; k++) {
+			int b = codigo[k];
+			for (int j = 7; j >= 0; j--, i++) {
+				int pos = colocacion[i];
+				p[pos >>> 6] |= (long)((b >>> j) & 1) << pos;
+			}
+		}
+	}
+
+        // Invierte en destino los modulos de la palabra de codigo indice (su posicion en la secuencia intercalada)
+        // donde valor tiene un 1. Sobre modulos en blanco equivale a colocar la palabra; sobre modulos ya enmascarados
+        // deja la palabra enmascarada.
+	void invertirPalabra(int indice, int valor, MatrizBits destino) {
+		long[] p = destino.palabras;
+		for (int j = 7, i = indice * 8; j >= 0; j--, i++) {
+			int pos = colocacion[i];
+			p[pos >>> 6] ^= (long)((valor >>> j) & 1) << pos;
+		}
+	}
+
+        // indica si la mascara dada invierte el modulo (x, y)
+	static boolean invierte(int mask, int x, int y) {
+		switch (mask) {
+			case 0:  return (x + y) % 2 == 0;
+			case 1:  return y % 2 == 0;
+			case 2:  return x % 3 == 0;
+			case 3:  return (x + y) % 3 == 0;
+			case 4:  return (x / 3 + y / 2) % 2 == 0;
+			case 5:  return x * y % 2 + x * y % 3 == 0;
+			case 6:  return (x * y % 2 + x * y % 3) % 2 == 0;
+			case 7:  return ((x + y) % 2 + x * y % 3) % 2 == 0;
+			default:  throw new IllegalArgumentException("Mascara fuera del rango");
+		}
+	}
+
+}
@@ -0,0 +1,457 @@
+package MIQR;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+// Verificador en el mismo proceso de los simbolos ya generados: lee de vuelta los bits de formato y de version, quita
+// la mascara que indica el formato, saca las palabras de codigo en zigzag, separa los bloques, comprueba que los sindromes de
+// cada uno son cero y vuelve a leer los segmentos hasta obtener el texto.
+// No usa las tablas de colocacion, las mascaras, la distribucion de bloques ni el generador Reed-Solomon del
+// codificador: todo se deduce de nuevo de la geometria y de la norma, para que un error en ellos no se repita aqui.
+// Solo comparte las tablas de la norma con el numero de bloques y de palabras de correccion.
+// No corrige errores, solo los detecta, porque un simbolo recien generado no deberia tener ninguno.
+// Con una tasa de muestreo menor a 1 solo se verifica esa fraccion de los simbolos, repartida de forma pareja.
+// Es seguro compartir una instancia entre hilos.
+public final class VerificadorQR {
+
+	private static final Charset SHIFT_JIS = Charset.isSupported("Shift_JIS") ? Charset.forName("Shift_JIS") : null;
+
+	// fraccion de simbolos que se verifican, de 0 a 1
+	private final double tasaMuestreo;
+
+	private final AtomicLong recibidos = new AtomicLong();
+	private final LongAdder verificados = new LongAdder();
+	private final LongAdder fallidos = new LongAdder();
+
+
+        // constructor, verifica todos los simbolos
+	public VerificadorQR() {
+		this(1.0);
+	}
+
+        // constructor, verifica solo la fraccion dada de los simbolos
+	public VerificadorQR(double tasaMuestreo) {
+		if (!(0 <= tasaMuestreo && tasaMuestreo <= 1))
+			throw new IllegalArgumentException("valor fuera de rango");
+		this.tasaMuestreo = tasaMuestreo;
+	}
+
+        // Decodifica el simbolo si le toca segun la tasa de muestreo y compara el texto con el esperado.
+        // Devuelve falso solo si el simbolo se verifico y tiene algun error o su texto es distinto.
+	public boolean verificar(QR qr, String esperado) {
+		Objects.requireNonNull(qr);
+		return verificar(qr, null, esperado);
+	}
+
+        // Igual que el anterior para una matriz suelta, como las de CodificadorQR y PlantillaEtiqueta.
+	public boolean verificar(MatrizBits matriz, String esperado) {
+		Objects.requireNonNull(matriz);
+		return verificar(null, matriz, esperado);
+	}
+
+	// verifica qr, o matriz si qr es null
+	private boolean verificar(QR qr, MatrizBits matriz, String esperado) {
+		long n = recibidos.getAndIncrement();
+		if ((long)((n + 1) * tasaMuestreo) == (long)(n * tasaMuestreo))
+			return true;
+		verificados.increment();
+		boolean correcto;
+		try {
+			correcto = (qr != null ? decodificar(qr) : decodificar(matriz)).equals(esperado);
+		} catch (IllegalArgumentException e) {
+			correcto = false;
+		}
+		if (!correcto)
+			fallidos.increment();
+		return correcto;
+	}
+
+        // simbolos que se verificaron hasta ahora
+	public long verificados() {
+		return verificados.sum();
+	}
+
+        // simbolos verificados que fallaron
+	public long fallidos() {
+		return fallidos.sum();
+	}
+
+        // Lee el texto del simbolo. Los segmentos byte se leen como UTF-8, como los escribe SementoQR.
+        // Lanza IllegalArgumentException si el formato, la version, la correccion de algun bloque o los segmentos no son
+        // validos, o si el nivel o la mascara del formato no son los del simbolo.
+	public static String decodificar(QR qr) {
+		MatrizBits m = qr.matriz();
+		if (m.size != qr.version * 4 + 17)
+			throw new IllegalArgumentException("Dimensiones distintas");
+		int formato = leerFormato(m);
+		if (NIVELES[formato >>> 3] != qr.errorCorrectionLevel || (formato & 7) != qr.mask)
+			throw new IllegalArgumentException("El formato no coincide con el simbolo");
+		return decodificar(m, qr.version, formato);
+	}
+
+        // Igual que el anterior para una matriz suelta: la version sale de la dimension y el nivel y la mascara del formato.
+	public static String decodificar(MatrizBits matriz) {
+		int version = QR.versionDeTamano(matriz.size);
+		if (version == -1)
+			throw new IllegalArgumentException("Dimensiones invalidas");
+		return decodificar(matriz, version, leerFormato(matriz));
+	}
+
+	// formato: los 2 bits del nivel seguidos de los 3 de la mascara, ya comprobados
+	private static String decodificar(MatrizBits m, int version, int formato) {
+		QR.Ecc ecl = NIVELES[formato >>> 3];
+		if (version >= 7)
+			leerVersion(m, version);
+
+		byte[] codigo = leerPalabras(m, version, formato & 7);
+
+		// separa los bloques: los cortos tienen una palabra de datos menos, y se intercalan primero los datos y luego
+		// la correccion; el numero de bloques y de palabras de correccion son los de la tabla de la norma
+		int nb = QR.numeroBloques(version, ecl);
+		int ec = QR.largoCorreccion(version, ecl);
+		int cortos = nb - codigo.length % nb;
+		int datosCorto = codigo.length / nb - ec;
+		byte[][] bloques = new byte[nb][];
+		for (int j = 0; j < nb; j++)
+			bloques[j] = new byte[datosCorto + (j < cortos ? 0 : 1) + ec];
+		int k = 0;
+		for (int i = 0; i <= datosCorto; i++) {
+			for (int j = 0; j < nb; j++) {
+				if (i < datosCorto || j >= cortos)
+					bloques[j][i] = codigo[k++];
+			}
+		}
+		for (int e = 0; e < ec; e++) {
+			for (int j = 0; j < nb; j++)
+				bloques[j][bloques[j].length - ec + e] = codigo[k++];
+		}
+
+		// cada bloque debe tener todos sus sindromes en cero; los datos de todos los bloques van seguidos
+		byte[] datos = new byte[codigo.length - nb * ec];
+		k = 0;
+		for (int j = 0; j < nb; j++) {
+			if (!sindromesEnCero(bloques[j], ec))
+				throw new IllegalArgumentException("Error de correccion en el bloque " + j);
+			int largo = bloques[j].length - ec;
+			System.arraycopy(bloques[j], 0, datos, k, largo);
+			k += largo;
+		}
+		return leerSegmentos(datos, version);
+	}
+
+	// lee las dos copias de los bits de formato, comprueba su BCH y devuelve sus 5 bits de datos
+	private static int leerFormato(MatrizBits m) {
+		int size = m.size;
+		int primera = 0, segunda = 0;
+		for (int i = 0; i <= 5; i++)
+			primera |= bit(m, 8, i) << i;
+		primera |= bit(m, 8, 7) << 6;
+		primera |= bit(m, 8, 8) << 7;
+		primera |= bit(m, 7, 8) << 8;
+		for (int i = 9; i < 15; i++)
+			primera |= bit(m, 14 - i, 8) << i;
+		for (int i = 0; i <= 7; i++)
+			segunda |= bit(m, size - 1 - i, 8) << i;
+		for (int i = 8; i < 15; i++)
+			segunda |= bit(m, 8, size - 15 + i) << i;
+		if (primera != segunda || bit(m, 8, size - 8) == 0)
+			throw new IllegalArgumentException("Formato invalido");
+
+		// 5 bits de datos y 10 de BCH con el generador 0x537, enmascarados con 0x5412
+		int formato = primera ^ 0x5412;
+		if (residuoBCH(formato, 15, 0x537, 10) != 0)
+			throw new IllegalArgumentException("Formato invalido");
+		return formato >>> 10;
+	}
+
+	// nivel de cada valor de los 2 bits de nivel del formato
+	private static final QR.Ecc[] NIVELES = {QR.Ecc.MEDIUM, QR.Ecc.LOW, QR.Ecc.HIGH, QR.Ecc.QUARTILE};
+
+	// lee las dos copias de los 18 bits de version (6 de datos y 12 de BCH con el generador 0x1F25) y los comprueba
+	private static void leerVersion(MatrizBits m, int version) {
+		int size = m.size;
+		int primera = 0, segunda = 0;
+		for (int i = 0; i < 18; i++) {
+			int a = size - 11 + i % 3, b = i / 3;
+			primera |= bit(m, a, b) << i;
+			segunda |= bit(m, b, a) << i;
+		}
+		if (primera != segunda || residuoBCH(primera, 18, 0x1F25, 12) != 0 || primera >>> 12 != version)
+			throw new IllegalArgumentException("Version invalida");
+	}
+
+	// residuo de los bits dados (largo en total) entre el polinomio generador de grado dado
+	private static int residuoBCH(int bits, int largo, int generador, int grado) {
+		for (int i = largo - 1; i >= grado; i--) {
+			if (((bits >>> i) & 1) != 0)
+				bits ^= generador << (i - grado);
+		}
+		return bits;
+	}
+
+	private static int bit(MatrizBits m, int x, int y) {
+		return m.get(x, y) ? 1 : 0;
+	}
+
+	// orden zigzag propio de cada version, construido la primera vez que se pide
+	private static final AtomicReferenceArray<int[]> ORDENES = new AtomicReferenceArray<>(41);
+
+	// Lee las palabras de codigo en zigzag quitando la mascara con su formula; los bits de resto del final se descartan.
+	private static byte[] leerPalabras(MatrizBits m, int version, int mask) {
+		int[] orden = ORDENES.get(version);
+		if (orden == null) {
+			orden = ordenZigzag(version);
+			if (!ORDENES.compareAndSet(version, null, orden))
+				orden = ORDENES.get(version);
+		}
+		byte[] result = new byte[orden.length / 8];
+		for (int i = 0; i < result.length * 8; i++) {
+			int x = orden[i] & 0xFF, y = orden[i] >>> 8;
+			int b = bit(m, x, y) ^ (invierte(mask, x, y) ? 1 : 0);
+			result[i >>> 3] |= b << (7 - (i & 7));
+		}
+		return result;
+	}
+
+	// Posiciones (x | y << 8) de los modulos de datos en el orden de lectura: de a dos columnas desde la derecha,
+	// alternando hacia arriba y hacia abajo y saltando la columna 6 de la linea de tiempo. Los modulos de funcion se
+	// deducen de la geometria de la version, sin las tablas del codificador.
+	private static int[] ordenZigzag(int version) {
+		int size = version * 4 + 17;
+		boolean[][] funcion = modulosFuncion(version);
+		int[] result = new int[size * size];
+		int i = 0;
+		for (int derecha = size - 1; derecha >= 1; derecha -= 2) {
+			if (derecha == 6)
+				derecha = 5;
+			boolean subiendo = ((derecha + 1) & 2) == 0;
+			for (int vert = 0; vert < size; vert++) {
+				int y = subiendo ? size - 1 - vert : vert;
+				for (int j = 0; j < 2; j++) {
+					int x = derecha - j;
+					if (!funcion[y][x])
+						result[i++] = x | y << 8;
+				}
+			}
+		}
+		return Arrays.copyOf(result, i);
+	}
+
+	// modulos de funcion de la version, indexados [y][x]: buscadores con separadores y formato, lineas de tiempo,
+	// patrones de alineamiento y, desde la version 7, los dos bloques de version
+	private static boolean[][] modulosFuncion(int version) {
+		int size = version * 4 + 17;
+		boolean[][] f = new boolean[size][size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				f[y][x] = x == 6 || y == 6
+					|| x < 9 && y < 9 || x >= size - 8 && y < 9 || x < 9 && y >= size - 8
+					|| version >= 7 && (x >= size - 11 && x < size - 8 && y < 6 || y >= size - 11 && y < size - 8 && x < 6);
+			}
+		}
+		int[] centros = centrosAlineamiento(version);
+		int n = centros.length;
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				if (a == 0 && b == 0 || a == 0 && b == n - 1 || a == n - 1 && b == 0)
+					continue;  // coinciden con los buscadores
+				for (int dy = -2; dy <= 2; dy++) {
+					for (int dx = -2; dx <= 2; dx++)
+						f[centros[b] + dy][centros[a] + dx] = true;
+				}
+			}
+		}
+		return f;
+	}
+
+	// coordenadas de los centros de los patrones de alineamiento: la primera es 6, la ultima size - 7, y las de en medio
+	// van con un paso par igual hacia atras desde la ultima
+	private static int[] centrosAlineamiento(int version) {
+		if (version == 1)
+			return new int[0];
+		int n = version / 7 + 2;
+		int paso = version == 32 ? 26 : (version * 4 + n * 2 + 1) / (n * 2 - 2) * 2;
+		int[] result = new int[n];
+		result[0] = 6;
+		for (int i = n - 1, pos = version * 4 + 10; i >= 1; i--, pos -= paso)
+			result[i] = pos;
+		return result;
+	}
+
+	// formulas de las 8 mascaras de la norma
+	private static boolean invierte(int mask, int x, int y) {
+		switch (mask) {
+			case 0:  return (y + x) % 2 == 0;
+			case 1:  return y % 2 == 0;
+			case 2:  return x % 3 == 0;
+			case 3:  return (y + x) % 3 == 0;
+			case 4:  return (y / 2 + x / 3) % 2 == 0;
+			case 5:  return y * x % 2 + y * x % 3 == 0;
+			case 6:  return (y * x % 2 + y * x % 3) % 2 == 0;
+			case 7:  return ((y + x) % 2 + y * x % 3) % 2 == 0;
+			default:  throw new IllegalArgumentException("Mascara fuera del rango");
+		}
+	}
+
+	// Evalua el bloque (datos y correccion, del coeficiente de mayor grado al de menor) en las raices del generador,
+	// alfa^0 a alfa^(ec-1) en GF(2^8) con el polinomio 0x11D, con la regla de Horner y las tablas de logaritmos propias.
+	private static boolean sindromesEnCero(byte[] bloque, int ec) {
+		for (int i = 0; i < ec; i++) {
+			int s = 0;
+			for (byte c : bloque)
+				s = (s == 0 ? 0 : EXP[LOG[s] + i]) ^ (c & 0xFF);
+			if (s != 0)
+				return false;
+		}
+		return true;
+	}
+
+	// exponenciales (duplicadas para no reducir el indice) y logaritmos de alfa = 2 en GF(2^8) / 0x11D
+	private static final int[] EXP = new int[512];
+	private static final int[] LOG = new int[256];
+
+	static {
+		for (int i = 0, x = 1; i < 255; i++) {
+			EXP[i] = x;
+			EXP[i + 255] = x;
+			LOG[x] = i;
+			x <<= 1;
+			if (x >= 0x100)
+				x ^= 0x11D;
+		}
+	}
+
+	// lee los segmentos de los datos hasta el terminador o el final de la capacidad
+	private static String leerSegmentos(byte[] datos, int version) {
+		Lector in = new Lector(datos);
+		StringBuilder sb = new StringBuilder();
+		while (in.restantes() >= 4) {
+			int modo = in.leer(4);
+			if (modo == 0)
+				break;  // terminador
+			switch (modo) {
+				case 0x1: {  // numerico
+					int n = in.leer(bitsContador(0, version));
+					for (; n >= 3; n -= 3)
+						agregarDigitos(sb, in.leer(10), 3);
+					if (n > 0)
+						agregarDigitos(sb, in.leer(n * 3 + 1), n);
+					break;
+				}
+				case 0x2: {  // alfanumerico
+					int n = in.leer(bitsContador(1, version));
+					for (; n >= 2; n -= 2) {
+						int v = in.leer(11);
+						if (v >= 45 * 45)
+							throw new IllegalArgumentException("Segmento invalido");
+						sb.append(ALFANUMERICOS.charAt(v / 45)).append(ALFANUMERICOS.charAt(v % 45));
+					}
+					if (n > 0) {
+						int v = in.leer(6);
+						if (v >= 45)
+							throw new IllegalArgumentException("Segmento invalido");
+						sb.append(ALFANUMERICOS.charAt(v));
+					}
+					break;
+				}
+				case 0x4: {  // byte
+					int n = in.leer(bitsContador(2, version));
+					byte[] b = new byte[n];
+					for (int i = 0; i < n; i++)
+						b[i] = (byte)in.leer(8);
+					sb.append(new String(b, StandardCharsets.UTF_8));
+					break;
+				}
+				case 0x8: {  // kanji, se vuelve a Shift_JIS de doble byte
+					int n = in.leer(bitsContador(3, version));
+					if (SHIFT_JIS == null)
+						throw new IllegalArgumentException("Shift_JIS no disponible");
+					byte[] b = new byte[n * 2];
+					for (int i = 0; i < n; i++) {
+						int v = in.leer(13);
+						int sjis = (v / 0xC0) << 8 | (v % 0xC0);
+						sjis += sjis < 0x1F00 ? 0x8140 : 0xC140;
+						b[i * 2] = (byte)(sjis >>> 8);
+						b[i * 2 + 1] = (byte)sjis;
+					}
+					sb.append(new String(b, SHIFT_JIS));
+					break;
+				}
+				case 0x7:  // ECI, no cambia el texto porque los bytes siempre se leen como UTF-8
+					leerECI(in);
+					break;
+				case 0x3:  // cabecera de anexo estructurado
+					in.leer(16);
+					break;
+				default:
+					throw new IllegalArgumentException("Segmento invalido");
+			}
+		}
+		return sb.toString();
+	}
+
+	// Lee el designador ECI y devuelve su numero de asignacion. El prefijo indica el largo:
+	// 0 -> 7 bits, 10 -> 14 bits, 110 -> 21 bits; 111 no es valido.
+	private static int leerECI(Lector in) {
+		int asignacion;
+		if (in.leer(1) == 0) {
+			asignacion = in.leer(7);
+		} else if (in.leer(1) == 0) {
+			asignacion = in.leer(14);
+		} else if (in.leer(1) == 0) {
+			asignacion = in.leer(21);
+			if (asignacion >= 1_000_000)
+				throw new IllegalArgumentException("ECI invalido");
+		} else {
+			throw new IllegalArgumentException("ECI invalido");
+		}
+		return asignacion;
+	}
+
+	// bits del contador de caracteres de la norma para numerico (0), alfanumerico (1), byte (2) y kanji (3)
+	private static final int[][] BITS_CONTADOR = {{10, 12, 14}, {9, 11, 13}, {8, 16, 16}, {8, 10, 12}};
+
+	private static int bitsContador(int modo, int version) {
+		return BITS_CONTADOR[modo][version <= 9 ? 0 : version <= 26 ? 1 : 2];
+	}
+
+	private static final String ALFANUMERICOS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+	private static void agregarDigitos(StringBuilder sb, int valor, int digitos) {
+		int limite = digitos == 3 ? 1000 : digitos == 2 ? 100 : 10;
+		if (valor >= limite)
+			throw new IllegalArgumentException("Segmento invalido");
+		for (int d = limite / 10; d > 0; d /= 10)
+			sb.append((char)('0' + valor / d % 10));
+	}
+
+	// lee bits de los datos del mas al menos significativo
+	private static final class Lector {
+		private final byte[] datos;
+		private int posicion;  // en bits
+
+		Lector(byte[] datos) {
+			this.datos = datos;
+		}
+
+		int restantes() {
+			return datos.length * 8 - posicion;
+		}
+
+		int leer(int len) {
+			if (len < 0 || len > restantes())
+				throw new IllegalArgumentException("Segmento invalido");
+			int result = 0;
+			for (int i = 0; i < len; i++, posicion++)
+				result = result << 1 | (datos[posicion >>> 3] >>> (7 - (posicion & 7))) & 1;
+			return result;
+		}
+	}
+
+}